@@ -0,0 +1,44 @@
+package me.seroperson.reload.live.benchmark;
+
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Headers;
+import me.seroperson.reload.live.handler.InProcessHandlers;
+import me.seroperson.reload.live.settings.DevServerSettings;
+
+/**
+ * A minimal interruptible application which is proxied during benchmarks.
+ *
+ * <p>It responds with a short plain-text body on every path, including the health-check one, and
+ * stops its webserver when the main thread gets interrupted. Its handler is also registered as an
+ * in-process one, so the proxy calls it directly unless in-process handlers are disabled.
+ */
+public final class BenchmarkApplication {
+
+  public static void main(String[] args) {
+    var port = Integer.getInteger(DevServerSettings.LiveReloadHttpPort, 8080);
+    var host = System.getProperty(DevServerSettings.LiveReloadHttpHost, "localhost");
+    HttpHandler handler =
+        (exchange) -> {
+          exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+          exchange.getResponseSender().send("ok");
+        };
+    InProcessHandlers.register(handler);
+    var server =
+        Undertow.builder()
+            .addHttpListener(port, host)
+            // Allows benchmarking the proxy in h2c mode
+            .setServerOption(UndertowOptions.ENABLE_HTTP2, true)
+            .setHandler(handler)
+            .build();
+    server.start();
+    try {
+      Thread.sleep(Long.MAX_VALUE);
+    } catch (InterruptedException e) {
+      server.stop();
+    }
+  }
+
+  private BenchmarkApplication() {}
+}
@@ -0,0 +1,36 @@
+package me.seroperson.reload.live.benchmark;
+
+import me.seroperson.reload.live.build.BuildLogger;
+
+/** {@link BuildLogger} which omits debug output to not affect measurements. */
+final class BenchmarkLogger implements BuildLogger {
+
+  @Override
+  public void debug(String message) {}
+
+  @Override
+  public void info(String message) {
+    System.out.println(message);
+  }
+
+  @Override
+  public void warn(String message) {
+    System.err.println(message);
+  }
+
+  @Override
+  public void error(Throwable t) {
+    t.printStackTrace();
+  }
+
+  @Override
+  public void error(String message, Throwable t) {
+    System.err.println(message);
+    t.printStackTrace();
+  }
+
+  @Override
+  public void error(String message) {
+    System.err.println(message);
+  }
+}
@@ -0,0 +1,121 @@
+package me.seroperson.reload.live.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.ZipFile;
+import me.seroperson.reload.live.runner.DevServerRunner;
+import me.seroperson.reload.live.runner.classloader.IndexedURLClassLoader;
+import me.seroperson.reload.live.runner.classloader.NamedURLClassLoader;
+
+/**
+ * Compares lookups in the ClassLoader of dependencies with and without the package index.
+ *
+ * <p>Run it with {@code sbt "benchmark/runMain
+ * me.seroperson.reload.live.benchmark.DependencyLookupBenchmark"}. The jars of the benchmark's own
+ * classpath are used as dependencies. A real application usually has many more of them, and the
+ * unindexed lookups get slower with every jar, while the indexed ones don't.
+ */
+public final class DependencyLookupBenchmark {
+
+  private static final int ROUNDS = 5;
+  private static final int MISSING = 20_000;
+
+  public static void main(String[] args) throws Exception {
+    var jars =
+        Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+            .map(File::new)
+            .filter((v) -> v.isFile() && v.getName().endsWith(".jar"))
+            .toList();
+    var classes = classNames(jars);
+    System.out.println();
+    System.out.println(
+        "Dependencies: " + jars.size() + " jars, loading " + classes.size() + " classes");
+    System.out.println();
+    System.out.println("| ClassLoader | Load classes, ms | Missing classes, µs | Resources, µs |");
+    System.out.println("| ----------- | ---------------- | ------------------- | ------------- |");
+    measure(
+        "plain",
+        jars,
+        classes,
+        (v) -> new NamedURLClassLoader("plain", DevServerRunner.urls(v), platform()));
+    measure(
+        "indexed",
+        jars,
+        classes,
+        (v) ->
+            IndexedURLClassLoader.create("indexed", v, DevServerRunner.urls(v), platform(), false));
+  }
+
+  private static void measure(
+      String name,
+      List<File> jars,
+      List<String> classes,
+      Function<List<File>, URLClassLoader> factory)
+      throws IOException {
+    long load = Long.MAX_VALUE;
+    long missing = Long.MAX_VALUE;
+    long resources = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      // A new ClassLoader every round, as loaded classes are cached
+      try (var classLoader = factory.apply(jars)) {
+        var start = System.nanoTime();
+        for (var className : classes) {
+          try {
+            Class.forName(className, false, classLoader);
+          } catch (ClassNotFoundException | LinkageError e) {
+            // Classes with missing optional dependencies
+          }
+        }
+        load = Math.min(load, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < MISSING; i++) {
+          try {
+            classLoader.loadClass("com.example.optional.Missing" + i);
+          } catch (ClassNotFoundException e) {
+            // Expected
+          }
+        }
+        missing = Math.min(missing, (System.nanoTime() - start) / MISSING);
+
+        start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+          classLoader.getResources("META-INF/services/java.sql.Driver").hasMoreElements();
+        }
+        resources = Math.min(resources, (System.nanoTime() - start) / 1000);
+      }
+    }
+    System.out.printf(
+        "| %-11s | %16d | %19.2f | %13.2f |%n",
+        name, load / 1_000_000, missing / 1000.0, resources / 1000.0);
+  }
+
+  private static List<String> classNames(List<File> jars) throws IOException {
+    var result = new ArrayList<String>();
+    for (var jar : jars) {
+      try (var zip = new ZipFile(jar)) {
+        var entries = zip.entries();
+        while (entries.hasMoreElements()) {
+          var entry = entries.nextElement().getName();
+          if (entry.endsWith(".class")
+              && !entry.startsWith("META-INF/")
+              && !entry.endsWith("module-info.class")) {
+            result.add(entry.substring(0, entry.length() - 6).replace('/', '.'));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static ClassLoader platform() {
+    return ClassLoader.getPlatformClassLoader();
+  }
+
+  private DependencyLookupBenchmark() {}
+}
@@ -0,0 +1,83 @@
+package me.seroperson.reload.live.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import me.seroperson.reload.live.runner.CompileResult;
+import me.seroperson.reload.live.runner.DevServer;
+import me.seroperson.reload.live.runner.DevServerRunner;
+import me.seroperson.reload.live.runner.StartParams;
+import me.seroperson.reload.live.settings.DevServerSettings;
+
+/**
+ * Starts a live reload proxy in front of {@link BenchmarkApplication} using the same entry point as
+ * build plugins do.
+ */
+final class DevServerFixture implements AutoCloseable {
+
+  static final int PROXY_PORT = 19000;
+  static final int HTTP_PORT = 18080;
+
+  private final DevServer devServer;
+
+  DevServerFixture(Map<String, String> extraSettings) {
+    var pluginSettings =
+        new HashMap<>(
+            Map.of(
+                DevServerSettings.LiveReloadProxyHttpPort, String.valueOf(PROXY_PORT),
+                DevServerSettings.LiveReloadHttpPort, String.valueOf(HTTP_PORT)));
+    pluginSettings.putAll(extraSettings);
+    System.setProperty(DevServerSettings.LiveReloadHttpPort, String.valueOf(HTTP_PORT));
+
+    var settings = new DevServerSettings(List.of(), List.of(), pluginSettings);
+    var params =
+        new StartParams(
+            settings,
+            classpath(),
+            List.of(),
+            "me.seroperson.reload.live.webserver.DevServerStart",
+            BenchmarkApplication.class.getName(),
+            List.of("me.seroperson.reload.live.hook.RestApiHealthCheckStartupHook"),
+            List.of(
+                "me.seroperson.reload.live.hook.ThreadInterruptShutdownHook",
+                "me.seroperson.reload.live.hook.RestApiHealthCheckShutdownHook"));
+    devServer =
+        DevServerRunner.getInstance()
+            .runBackground(
+                params,
+                () -> new CompileResult.CompileSuccess(List.of()),
+                /* triggerReload */ null,
+                /* fileWatchService */ null,
+                new BenchmarkLogger());
+  }
+
+  /** Performs a first request, which starts the underlying application. */
+  URI warmUp(HttpClient client) throws IOException, InterruptedException {
+    var uri = URI.create("http://localhost:" + PROXY_PORT + "/");
+    var response =
+        client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException("Unexpected response status: " + response.statusCode());
+    }
+    return uri;
+  }
+
+  @Override
+  public void close() throws IOException {
+    devServer.close();
+  }
+
+  private static List<File> classpath() {
+    return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+        .map(File::new)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,87 @@
+package me.seroperson.reload.live.benchmark;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import me.seroperson.reload.live.settings.DevServerSettings;
+
+/**
+ * Measures the time from the start of the development server to the first response of the
+ * application, with and without classes of dependencies loaded in the background.
+ *
+ * <p>Run it with {@code sbt "benchmark/runMain
+ * me.seroperson.reload.live.benchmark.FirstResponseBenchmark"}. Every measurement is done in a new
+ * JVM, as classes are loaded only once per JVM. The first run records the classes to load.
+ */
+public final class FirstResponseBenchmark {
+
+  private static final int RUNS = 5;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 1) {
+      measure(Boolean.parseBoolean(args[0]));
+      return;
+    }
+    // Records the loaded classes
+    run(true);
+    var results = Map.of(false, new ArrayList<Long>(), true, new ArrayList<Long>());
+    for (int i = 0; i < RUNS; i++) {
+      for (var preload : List.of(false, true)) {
+        results.get(preload).add(run(preload));
+      }
+    }
+    System.out.println();
+    System.out.println("| Preload | First response, ms (median) |");
+    System.out.println("| ------- | --------------------------- |");
+    for (var preload : List.of(false, true)) {
+      var times = results.get(preload);
+      times.sort(null);
+      System.out.printf("| %-7s | %27d |%n", preload, times.get(times.size() / 2));
+    }
+  }
+
+  private static long run(boolean preload) throws Exception {
+    var java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    var process =
+        new ProcessBuilder(
+                java,
+                "-cp",
+                System.getProperty("java.class.path"),
+                FirstResponseBenchmark.class.getName(),
+                String.valueOf(preload))
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+    var lines = new String(process.getInputStream().readAllBytes()).lines().toList();
+    if (process.waitFor() != 0 || lines.isEmpty()) {
+      throw new IllegalStateException("The measurement failed");
+    }
+    return Long.parseLong(lines.get(lines.size() - 1).trim());
+  }
+
+  private static void measure(boolean preload) throws Exception {
+    var start = System.nanoTime();
+    // Preloading works only with the index
+    var settings =
+        Map.of(
+            DevServerSettings.LiveReloadDependenciesIndex,
+            "true",
+            DevServerSettings.LiveReloadDependenciesPreload,
+            String.valueOf(preload));
+    long elapsed;
+    try (var fixture = new DevServerFixture(settings)) {
+      var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      fixture.warmUp(client);
+      elapsed = (System.nanoTime() - start) / 1_000_000;
+      // Gives the background threads time to finish, so the recorded list is complete
+      if (preload) {
+        Thread.sleep(1000L);
+      }
+    }
+    System.out.println(elapsed);
+    System.exit(0);
+  }
+
+  private FirstResponseBenchmark() {}
+}
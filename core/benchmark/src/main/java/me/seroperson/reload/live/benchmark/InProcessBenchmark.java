@@ -0,0 +1,48 @@
+package me.seroperson.reload.live.benchmark;
+
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import me.seroperson.reload.live.settings.DevServerSettings;
+
+/**
+ * Measures the time per request saved by passing requests to the in-process handler of the
+ * application instead of proxying them over HTTP.
+ *
+ * <p>Run it with {@code sbt "benchmark/runMain
+ * me.seroperson.reload.live.benchmark.InProcessBenchmark"}. Requests are sent one at a time, so the
+ * time per request is the latency as seen by the client, including the client itself.
+ */
+public final class InProcessBenchmark {
+
+  private static final long WARMUP_MILLIS = 2000L;
+  private static final long MEASURE_MILLIS = 5000L;
+
+  public static void main(String[] args) throws Exception {
+    System.out.println();
+    System.out.println("| Transport  | Requests/s | µs/request |");
+    System.out.println("| ---------- | ---------- | ---------- |");
+    for (var inProcess : List.of(false, true)) {
+      var settings = Map.of(DevServerSettings.LiveReloadProxyInProcess, String.valueOf(inProcess));
+      try (var fixture = new DevServerFixture(settings)) {
+        var executor = Executors.newCachedThreadPool();
+        var client =
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+        var uri = fixture.warmUp(client);
+
+        ProxyThroughputBenchmark.run(client, uri, 1, WARMUP_MILLIS);
+        var requests = ProxyThroughputBenchmark.run(client, uri, 1, MEASURE_MILLIS);
+        System.out.printf(
+            "| %-10s | %10d | %10.1f |%n",
+            inProcess ? "in-process" : "HTTP",
+            requests * 1000 / MEASURE_MILLIS,
+            MEASURE_MILLIS * 1000.0 / requests);
+        executor.shutdownNow();
+      }
+    }
+    System.exit(0);
+  }
+
+  private InProcessBenchmark() {}
+}
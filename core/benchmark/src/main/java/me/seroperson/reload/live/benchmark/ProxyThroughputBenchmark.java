@@ -0,0 +1,89 @@
+package me.seroperson.reload.live.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of the live reload proxy in a steady state, when nothing has changed and
+ * every request just passes the reload check.
+ *
+ * <p>Run it with {@code sbt benchmark/run}. Optional arguments are the list of concurrent clients
+ * (default is {@code 1 8 64}). To compare two revisions, run it on both of them. Settings can be
+ * passed as system properties, for example {@code -Dlive.reload.proxy.protocol=h2c}.
+ */
+public final class ProxyThroughputBenchmark {
+
+  private static final long WARMUP_MILLIS = 2000L;
+  private static final long MEASURE_MILLIS = 5000L;
+
+  public static void main(String[] args) throws Exception {
+    var concurrencies = new ArrayList<Integer>();
+    for (var arg : args) {
+      concurrencies.add(Integer.parseInt(arg));
+    }
+    if (concurrencies.isEmpty()) {
+      concurrencies.add(1);
+      concurrencies.add(8);
+      concurrencies.add(64);
+    }
+
+    try (var fixture = new DevServerFixture(Map.of())) {
+      var executor = Executors.newCachedThreadPool();
+      var client =
+          HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+      var uri = fixture.warmUp(client);
+
+      System.out.println();
+      System.out.println("| Clients | Requests/s |");
+      System.out.println("| ------- | ---------- |");
+      for (var concurrency : concurrencies) {
+        run(client, uri, concurrency, WARMUP_MILLIS);
+        var throughput = run(client, uri, concurrency, MEASURE_MILLIS) * 1000 / MEASURE_MILLIS;
+        System.out.printf("| %7d | %10d |%n", concurrency, throughput);
+      }
+      executor.shutdownNow();
+    }
+    System.exit(0);
+  }
+
+  static long run(HttpClient client, URI uri, int concurrency, long durationMillis)
+      throws InterruptedException {
+    var request = HttpRequest.newBuilder(uri).build();
+    var running = new AtomicBoolean(true);
+    var completed = new AtomicLong();
+    var threads = new ArrayList<Thread>();
+    for (int i = 0; i < concurrency; i++) {
+      var thread =
+          new Thread(
+              () -> {
+                while (running.get()) {
+                  try {
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                    completed.incrementAndGet();
+                  } catch (Exception e) {
+                    if (running.get()) {
+                      throw new RuntimeException(e);
+                    }
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    Thread.sleep(durationMillis);
+    running.set(false);
+    for (var thread : threads) {
+      thread.join();
+    }
+    return completed.get();
+  }
+
+  private ProxyThroughputBenchmark() {}
+}
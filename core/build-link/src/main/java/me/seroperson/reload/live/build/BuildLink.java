@@ -23,4 +23,36 @@ public interface BuildLink {
    *     </ul>
    */
   Object reload();
+
+  /**
+   * Check if there are pending changes, which means that the next {@link #reload()} call may
+   * recompile the project and return an updated classloader.
+   *
+   * <p>This method must not block, so it can be called on every request to decide whether a request
+   * has to wait for a reload. By default, a reload is always considered possible, so every request
+   * falls back to {@link #reload()}.
+   *
+   * @return true if a reload may be necessary
+   */
+  default boolean isReloadPending() {
+    return true;
+  }
+
+  /**
+   * Sets the listener which is notified whenever new changes are detected, so the server may reload
+   * without waiting for a request.
+   *
+   * <p>The listener is called on the thread which has detected the changes, so it must not block.
+   * Changes which are detected only when {@link #isReloadPending()} is called are reported from
+   * there. By default, changes aren't reported.
+   *
+   * @param listener the listener, or null to stop notifying
+   */
+  default void setChangeListener(Runnable listener) {}
+
+  /**
+   * Notifies that the application returned by {@link #reload()} has started, so whatever was
+   * learned while starting it may be saved for the next run. By default, nothing is done.
+   */
+  default void applicationStarted() {}
 }
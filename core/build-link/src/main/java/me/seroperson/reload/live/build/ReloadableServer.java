@@ -8,4 +8,12 @@ public interface ReloadableServer {
 
   /** Reload the server if necessary. Returns true if was reloaded. */
   boolean reload();
+
+  /**
+   * Reports what the server has measured, for instance the comparison of the current and the
+   * previous versions of the application. Returns null if there is nothing to report.
+   */
+  default String report() {
+    return null;
+  }
 }
@@ -0,0 +1,58 @@
+package me.seroperson.reload.live.handler;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request received by the development server and the response to it, as seen by an {@link
+ * InProcessHandler}.
+ */
+public interface InProcessExchange {
+
+  /**
+   * @return the request method, for instance GET
+   */
+  String getMethod();
+
+  /**
+   * @return the decoded request path
+   */
+  String getRequestPath();
+
+  /**
+   * @return the raw query string without the leading question mark, empty if there is none
+   */
+  String getQueryString();
+
+  /**
+   * @return the request headers by their case-insensitive names
+   */
+  Map<String, List<String>> getRequestHeaders();
+
+  /**
+   * @return the request body
+   */
+  InputStream getRequestBody();
+
+  /**
+   * Sets the response status. Must be called before the body is written.
+   *
+   * @param status the status code
+   */
+  void setStatus(int status);
+
+  /**
+   * Adds a response header. Must be called before the body is written.
+   *
+   * @param name the header name
+   * @param value the header value
+   */
+  void addResponseHeader(String name, String value);
+
+  /**
+   * @return the response body
+   */
+  OutputStream getResponseBody();
+}
@@ -0,0 +1,23 @@
+package me.seroperson.reload.live.handler;
+
+/**
+ * A request handler which is called by the development server directly, instead of sending the
+ * request to the application over HTTP.
+ *
+ * <p>It's a servlet-style blocking API, so it can be adapted to most frameworks. The handler is
+ * called on a worker thread of the development server and may block. The response is complete once
+ * the handler returns.
+ *
+ * @see InProcessHandlers
+ */
+@FunctionalInterface
+public interface InProcessHandler {
+
+  /**
+   * Handles a request.
+   *
+   * @param exchange the request and the response
+   * @throws Exception if the request can't be handled, the client receives an error then
+   */
+  void handle(InProcessExchange exchange) throws Exception;
+}
@@ -0,0 +1,70 @@
+package me.seroperson.reload.live.handler;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request handlers registered by applications, so the development server can call them directly
+ * instead of going through HTTP.
+ *
+ * <p>The application runs in the same JVM as the development server, so every request is otherwise
+ * serialized to HTTP, sent over a loopback connection and parsed again by the application's server.
+ * An application may register its handler during startup to avoid it. Two kinds of handlers are
+ * supported:
+ *
+ * <ul>
+ *   <li>{@link InProcessHandler} - a blocking servlet-style handler;
+ *   <li>Undertow's {@code io.undertow.server.HttpHandler} - the exchange of the development server
+ *       is passed as is, if the application uses the same Undertow classes.
+ * </ul>
+ *
+ * <p>The application still has to listen on its port, as health checks go over HTTP, and so do
+ * requests if the handler isn't supported or in-process handlers are disabled. Handlers are bound
+ * to the ClassLoader of the reloaded code, so every reload registers its own handler, and the
+ * handler is forgotten once the application is stopped.
+ */
+public final class InProcessHandlers {
+
+  private static final Map<ClassLoader, Object> handlers = new ConcurrentHashMap<>();
+
+  /**
+   * Registers a handler of the application which is started by the current thread. It's the same as
+   * {@link #register(ClassLoader, Object)} with the context ClassLoader of the current thread,
+   * which is the ClassLoader of the reloaded code in the main application thread.
+   *
+   * @param handler either an {@link InProcessHandler} or an Undertow {@code HttpHandler}
+   */
+  public static void register(Object handler) {
+    register(Thread.currentThread().getContextClassLoader(), handler);
+  }
+
+  /**
+   * Registers a handler of the application.
+   *
+   * @param classLoader the ClassLoader of the reloaded code
+   * @param handler either an {@link InProcessHandler} or an Undertow {@code HttpHandler}
+   */
+  public static void register(ClassLoader classLoader, Object handler) {
+    handlers.put(Objects.requireNonNull(classLoader), Objects.requireNonNull(handler));
+  }
+
+  /**
+   * @param classLoader the ClassLoader of the reloaded code
+   * @return the handler of the application, or null if none is registered
+   */
+  public static Object get(ClassLoader classLoader) {
+    return handlers.get(classLoader);
+  }
+
+  /**
+   * Forgets the handler of the application, as it's stopped.
+   *
+   * @param classLoader the ClassLoader of the reloaded code
+   */
+  public static void unregister(ClassLoader classLoader) {
+    handlers.remove(classLoader);
+  }
+
+  private InProcessHandlers() {}
+}
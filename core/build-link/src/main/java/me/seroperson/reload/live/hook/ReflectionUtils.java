@@ -1,6 +1,8 @@
 package me.seroperson.reload.live.hook;
 
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
+import java.util.Map;
 import me.seroperson.reload.live.build.BuildLogger;
 
 /**
@@ -56,4 +58,48 @@ public final class ReflectionUtils {
       logger.error("Failed to run shutdown hooks via reflection", e);
     }
   }
+
+  /**
+   * Runs only the application shutdown hooks which were registered by the given class loader.
+   *
+   * <p>Unlike {@link #runApplicationShutdownHooks(BuildLogger)} it leaves hooks of other class
+   * loaders untouched, so it's safe to use when several generations of an application are running
+   * at the same time. A hook belongs to the class loader if it's either its context class loader or
+   * the loader of its class.
+   *
+   * <p>This method uses internal JVM APIs and may not work on all JVM implementations.
+   */
+  @SuppressWarnings("unchecked")
+  public static void runApplicationShutdownHooks(BuildLogger logger, ClassLoader cl) {
+    try {
+      logger.debug("Running shutdown hooks of " + cl);
+      var clazz = Class.forName("java.lang.ApplicationShutdownHooks");
+      var hooksField = clazz.getDeclaredField("hooks");
+      hooksField.setAccessible(true);
+
+      var owned = new ArrayList<Thread>();
+      synchronized (clazz) {
+        var hooks = (Map<Thread, Thread>) hooksField.get(null);
+        if (hooks == null) {
+          return;
+        }
+        for (var hook : hooks.keySet()) {
+          if (hook.getContextClassLoader() == cl || hook.getClass().getClassLoader() == cl) {
+            owned.add(hook);
+          }
+        }
+        owned.forEach(hooks::remove);
+      }
+
+      for (var hook : owned) {
+        hook.start();
+      }
+      for (var hook : owned) {
+        hook.join();
+      }
+      logger.debug(owned.size() + " shutdown hooks were invoked successfully");
+    } catch (Exception e) {
+      logger.error("Failed to run shutdown hooks via reflection", e);
+    }
+  }
 }
@@ -24,6 +24,11 @@ public class RuntimeShutdownHook implements Hook {
 
   @Override
   public void hook(Thread th, ClassLoader cl, DevServerSettings settings, BuildLogger logger) {
-    ReflectionUtils.runApplicationShutdownHooks(logger);
+    if (settings.isBlueGreen()) {
+      // Another generation may be running, so leaving its hooks untouched
+      ReflectionUtils.runApplicationShutdownHooks(logger, cl);
+    } else {
+      ReflectionUtils.runApplicationShutdownHooks(logger);
+    }
   }
 }
@@ -0,0 +1,24 @@
+package me.seroperson.reload.live.hook;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Health check hook that uses TCP connections to determine server health.
+ *
+ * <p>This hook performs health checks by opening a TCP connection to the server's port, so it works
+ * for applications which don't serve HTTP, like gRPC services, message consumers with a metrics
+ * port or anything else which listens on a port. The server is considered healthy if the connection
+ * is accepted within the timeout period. The health check path is ignored.
+ */
+interface TcpHealthCheckHook extends HealthCheckHook {
+
+  default boolean isHealthy(String path, String host, int port) {
+    try (var socket = new Socket()) {
+      socket.connect(new InetSocketAddress(host, port), 500);
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+}
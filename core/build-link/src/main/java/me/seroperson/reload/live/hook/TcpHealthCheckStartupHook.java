@@ -0,0 +1,10 @@
+package me.seroperson.reload.live.hook;
+
+/**
+ * Startup hook that waits for a TCP health check to succeed.
+ *
+ * <p>This hook combines TCP health checking with startup waiting logic. It polls the server's port
+ * until it accepts a connection, indicating the server has started successfully.
+ */
+public class TcpHealthCheckStartupHook extends HealthCheckStartupHook
+    implements TcpHealthCheckHook {}
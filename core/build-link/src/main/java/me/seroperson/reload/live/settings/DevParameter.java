@@ -101,10 +101,10 @@ public final class DevParameter<T> {
    * @param map the map to put the value into
    */
   public void putInto(Map<String, String> map) {
-    if (value == null) {
-      map.put(argKey, toString.apply(defaultValue));
-    } else {
-      map.put(argKey, toString.apply(value.orElse(defaultValue)));
+    var resolved = value == null ? defaultValue : value.orElse(defaultValue);
+    // A parameter without a default is derived from other ones unless set explicitly
+    if (resolved != null) {
+      map.put(argKey, toString.apply(resolved));
     }
   }
 }
@@ -1,5 +1,6 @@
 package me.seroperson.reload.live.settings;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,55 @@ public final class DevServerSettings {
   public static final String LiveReloadHttpPort = "live.reload.http.port";
   public static final String LiveReloadHealthPath = "live.reload.http.health";
   public static final String LiveReloadIsDebug = "live.reload.debug";
+  public static final String LiveReloadProxyQueueSize = "live.reload.proxy.queue.size";
+  public static final String LiveReloadProxyQueueBytes = "live.reload.proxy.queue.bytes";
+  public static final String LiveReloadBlueGreen = "live.reload.bluegreen";
+  public static final String LiveReloadHttpPorts = "live.reload.http.ports";
+  public static final String LiveReloadProxyPoolMaxIdle = "live.reload.proxy.pool.max.idle";
+  public static final String LiveReloadProxyPoolIdle = "live.reload.proxy.pool.idle";
+  public static final String LiveReloadProxyPoolPrewarm = "live.reload.proxy.pool.prewarm";
+  public static final String LiveReloadProxyProtocol = "live.reload.proxy.protocol";
+  public static final String LiveReloadProxyHttp2 = "live.reload.proxy.http2";
+  public static final String LiveReloadProxyHttpsPort = "live.reload.proxy.https.port";
+  public static final String LiveReloadProxyKeystore = "live.reload.proxy.keystore";
+  public static final String LiveReloadProxyKeystorePassword =
+      "live.reload.proxy.keystore.password";
+  public static final String LiveReloadProxyTimeout = "live.reload.proxy.timeout";
+  public static final String LiveReloadDrainTimeout = "live.reload.drain.timeout";
+  public static final String LiveReloadProxyReplayBytes = "live.reload.proxy.replay.bytes";
+  public static final String LiveReloadProxyCache = "live.reload.proxy.cache";
+  public static final String LiveReloadProxyCacheBytes = "live.reload.proxy.cache.bytes";
+  public static final String LiveReloadProxyCacheHeaders = "live.reload.proxy.cache.headers";
+  public static final String LiveReloadProxyCacheStale = "live.reload.proxy.cache.stale";
+  public static final String LiveReloadProxyStatic = "live.reload.proxy.static";
+  public static final String LiveReloadProxyStaticCacheBytes =
+      "live.reload.proxy.static.cache.bytes";
+  public static final String LiveReloadTriggerInclude = "live.reload.trigger.include";
+  public static final String LiveReloadTriggerExclude = "live.reload.trigger.exclude";
+  public static final String LiveReloadTriggerHeaders = "live.reload.trigger.headers";
+  public static final String LiveReloadProxyCoalesce = "live.reload.proxy.coalesce";
+  public static final String LiveReloadProxyCoalesceBytes = "live.reload.proxy.coalesce.bytes";
+  public static final String LiveReloadProxyCoalesceExclude = "live.reload.proxy.coalesce.exclude";
+  public static final String LiveReloadProxyCompression = "live.reload.proxy.compression";
+  public static final String LiveReloadProxyCompressionProviders =
+      "live.reload.proxy.compression.providers";
+  public static final String LiveReloadProxyCompressionCacheBytes =
+      "live.reload.proxy.compression.cache.bytes";
+  public static final String LiveReloadProxyServerTiming = "live.reload.proxy.server.timing";
+  public static final String LiveReloadProxyLatency = "live.reload.proxy.latency";
+  public static final String LiveReloadProxyLatencySamples = "live.reload.proxy.latency.samples";
+  public static final String LiveReloadProxyLatencyThreshold =
+      "live.reload.proxy.latency.threshold";
+  public static final String LiveReloadShadow = "live.reload.shadow";
+  public static final String LiveReloadShadowSample = "live.reload.shadow.sample";
+  public static final String LiveReloadProxyInProcess = "live.reload.proxy.inprocess";
+  public static final String LiveReloadNormalizeBytecode = "live.reload.bytecode.normalize";
+  public static final String LiveReloadLayers = "live.reload.layers";
+  public static final String LiveReloadDependenciesIndex = "live.reload.dependencies.index";
+  public static final String LiveReloadDependenciesPreload = "live.reload.dependencies.preload";
+  public static final String LiveReloadEager = "live.reload.eager";
+  public static final String LiveReloadEagerDelay = "live.reload.eager.delay";
+  public static final String LiveReloadDaemon = "live.reload.daemon";
 
   private final Map<String, String> javaOptionProperties;
   private final Map<String, String> argsProperties;
@@ -70,6 +120,344 @@ public final class DevServerSettings {
       new DevParameter<>(
           LiveReloadIsDebug, "LIVE_RELOAD_DEBUG", false, String::valueOf, Boolean::parseBoolean);
 
+  private final DevParameter<Integer> proxyQueueSize =
+      new DevParameter<>(
+          LiveReloadProxyQueueSize,
+          "LIVE_RELOAD_PROXY_QUEUE_SIZE",
+          256,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<Long> proxyQueueBytes =
+      new DevParameter<>(
+          LiveReloadProxyQueueBytes,
+          "LIVE_RELOAD_PROXY_QUEUE_BYTES",
+          16L * 1024 * 1024,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<Boolean> blueGreen =
+      new DevParameter<>(
+          LiveReloadBlueGreen,
+          "LIVE_RELOAD_BLUEGREEN",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<List<Integer>> httpPorts =
+      new DevParameter<>(
+          LiveReloadHttpPorts,
+          "LIVE_RELOAD_HTTP_PORTS",
+          List.of(),
+          (v) -> v.stream().map(String::valueOf).collect(Collectors.joining(",")),
+          DevServerSettings::parsePorts);
+
+  private final DevParameter<Integer> proxyPoolMaxIdle =
+      new DevParameter<>(
+          LiveReloadProxyPoolMaxIdle,
+          "LIVE_RELOAD_PROXY_POOL_MAX_IDLE",
+          16,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<Long> proxyPoolIdle =
+      new DevParameter<>(
+          LiveReloadProxyPoolIdle,
+          "LIVE_RELOAD_PROXY_POOL_IDLE",
+          60000L,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<Integer> proxyPoolPrewarm =
+      new DevParameter<>(
+          LiveReloadProxyPoolPrewarm,
+          "LIVE_RELOAD_PROXY_POOL_PREWARM",
+          4,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<String> proxyProtocol =
+      new DevParameter<>(
+          LiveReloadProxyProtocol,
+          "LIVE_RELOAD_PROXY_PROTOCOL",
+          "http1",
+          String::valueOf,
+          Function.identity());
+
+  private final DevParameter<Boolean> proxyHttp2 =
+      new DevParameter<>(
+          LiveReloadProxyHttp2,
+          "LIVE_RELOAD_PROXY_HTTP2",
+          true,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Integer> proxyHttpsPort =
+      new DevParameter<>(
+          LiveReloadProxyHttpsPort,
+          "LIVE_RELOAD_PROXY_HTTPS_PORT",
+          9443,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<String> proxyKeystore =
+      new DevParameter<>(
+          LiveReloadProxyKeystore,
+          "LIVE_RELOAD_PROXY_KEYSTORE",
+          "",
+          String::valueOf,
+          Function.identity());
+
+  private final DevParameter<String> proxyKeystorePassword =
+      new DevParameter<>(
+          LiveReloadProxyKeystorePassword,
+          "LIVE_RELOAD_PROXY_KEYSTORE_PASSWORD",
+          "",
+          String::valueOf,
+          Function.identity());
+
+  private final DevParameter<Integer> proxyTimeout =
+      new DevParameter<>(
+          LiveReloadProxyTimeout,
+          "LIVE_RELOAD_PROXY_TIMEOUT",
+          30000,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<Long> drainTimeout =
+      new DevParameter<>(
+          LiveReloadDrainTimeout,
+          "LIVE_RELOAD_DRAIN_TIMEOUT",
+          10000L,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<Long> proxyReplayBytes =
+      new DevParameter<>(
+          LiveReloadProxyReplayBytes,
+          "LIVE_RELOAD_PROXY_REPLAY_BYTES",
+          64L * 1024,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<Boolean> proxyCache =
+      new DevParameter<>(
+          LiveReloadProxyCache,
+          "LIVE_RELOAD_PROXY_CACHE",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Long> proxyCacheBytes =
+      new DevParameter<>(
+          LiveReloadProxyCacheBytes,
+          "LIVE_RELOAD_PROXY_CACHE_BYTES",
+          64L * 1024 * 1024,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<List<String>> proxyCacheHeaders =
+      new DevParameter<>(
+          LiveReloadProxyCacheHeaders,
+          "LIVE_RELOAD_PROXY_CACHE_HEADERS",
+          List.of("Accept", "Accept-Encoding", "Accept-Language"),
+          (v) -> String.join(",", v),
+          DevServerSettings::parseList);
+
+  private final DevParameter<Boolean> proxyCacheStale =
+      new DevParameter<>(
+          LiveReloadProxyCacheStale,
+          "LIVE_RELOAD_PROXY_CACHE_STALE",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Map<String, String>> proxyStatic =
+      new DevParameter<>(
+          LiveReloadProxyStatic,
+          "LIVE_RELOAD_PROXY_STATIC",
+          Map.of(),
+          (v) ->
+              v.entrySet().stream()
+                  .map((e) -> e.getKey() + "=" + e.getValue())
+                  .collect(Collectors.joining(",")),
+          DevServerSettings::parseMapping);
+
+  private final DevParameter<Integer> proxyStaticCacheBytes =
+      new DevParameter<>(
+          LiveReloadProxyStaticCacheBytes,
+          "LIVE_RELOAD_PROXY_STATIC_CACHE_BYTES",
+          10 * 1024 * 1024,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<List<String>> triggerInclude =
+      new DevParameter<>(
+          LiveReloadTriggerInclude,
+          "LIVE_RELOAD_TRIGGER_INCLUDE",
+          List.of(),
+          (v) -> String.join(",", v),
+          DevServerSettings::parseList);
+
+  private final DevParameter<List<String>> triggerExclude =
+      new DevParameter<>(
+          LiveReloadTriggerExclude,
+          "LIVE_RELOAD_TRIGGER_EXCLUDE",
+          List.of(),
+          (v) -> String.join(",", v),
+          DevServerSettings::parseList);
+
+  private final DevParameter<List<String>> triggerHeaders =
+      new DevParameter<>(
+          LiveReloadTriggerHeaders,
+          "LIVE_RELOAD_TRIGGER_HEADERS",
+          List.of(),
+          (v) -> String.join(",", v),
+          DevServerSettings::parseList);
+
+  private final DevParameter<Boolean> proxyCoalesce =
+      new DevParameter<>(
+          LiveReloadProxyCoalesce,
+          "LIVE_RELOAD_PROXY_COALESCE",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Long> proxyCoalesceBytes =
+      new DevParameter<>(
+          LiveReloadProxyCoalesceBytes,
+          "LIVE_RELOAD_PROXY_COALESCE_BYTES",
+          1024L * 1024,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<List<String>> proxyCoalesceExclude =
+      new DevParameter<>(
+          LiveReloadProxyCoalesceExclude,
+          "LIVE_RELOAD_PROXY_COALESCE_EXCLUDE",
+          List.of(),
+          (v) -> String.join(",", v),
+          DevServerSettings::parseList);
+
+  private final DevParameter<Boolean> proxyCompression =
+      new DevParameter<>(
+          LiveReloadProxyCompression,
+          "LIVE_RELOAD_PROXY_COMPRESSION",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Map<String, String>> proxyCompressionProviders =
+      new DevParameter<>(
+          LiveReloadProxyCompressionProviders,
+          "LIVE_RELOAD_PROXY_COMPRESSION_PROVIDERS",
+          Map.of(),
+          (v) ->
+              v.entrySet().stream()
+                  .map((e) -> e.getKey() + "=" + e.getValue())
+                  .collect(Collectors.joining(",")),
+          DevServerSettings::parseMapping);
+
+  private final DevParameter<Long> proxyCompressionCacheBytes =
+      new DevParameter<>(
+          LiveReloadProxyCompressionCacheBytes,
+          "LIVE_RELOAD_PROXY_COMPRESSION_CACHE_BYTES",
+          32L * 1024 * 1024,
+          String::valueOf,
+          Long::parseLong);
+
+  private final DevParameter<Boolean> proxyServerTiming =
+      new DevParameter<>(
+          LiveReloadProxyServerTiming,
+          "LIVE_RELOAD_PROXY_SERVER_TIMING",
+          null,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Boolean> proxyLatency =
+      new DevParameter<>(
+          LiveReloadProxyLatency,
+          "LIVE_RELOAD_PROXY_LATENCY",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Integer> proxyLatencySamples =
+      new DevParameter<>(
+          LiveReloadProxyLatencySamples,
+          "LIVE_RELOAD_PROXY_LATENCY_SAMPLES",
+          100,
+          String::valueOf,
+          Integer::parseInt);
+
+  private final DevParameter<Double> proxyLatencyThreshold =
+      new DevParameter<>(
+          LiveReloadProxyLatencyThreshold,
+          "LIVE_RELOAD_PROXY_LATENCY_THRESHOLD",
+          1.5,
+          String::valueOf,
+          Double::parseDouble);
+
+  private final DevParameter<Boolean> shadow =
+      new DevParameter<>(
+          LiveReloadShadow, "LIVE_RELOAD_SHADOW", false, String::valueOf, Boolean::parseBoolean);
+
+  private final DevParameter<Double> shadowSample =
+      new DevParameter<>(
+          LiveReloadShadowSample,
+          "LIVE_RELOAD_SHADOW_SAMPLE",
+          0.1,
+          String::valueOf,
+          Double::parseDouble);
+
+  private final DevParameter<Boolean> proxyInProcess =
+      new DevParameter<>(
+          LiveReloadProxyInProcess,
+          "LIVE_RELOAD_PROXY_INPROCESS",
+          true,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Boolean> normalizeBytecode =
+      new DevParameter<>(
+          LiveReloadNormalizeBytecode,
+          "LIVE_RELOAD_BYTECODE_NORMALIZE",
+          true,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Boolean> layers =
+      new DevParameter<>(
+          LiveReloadLayers, "LIVE_RELOAD_LAYERS", false, String::valueOf, Boolean::parseBoolean);
+
+  private final DevParameter<Boolean> dependenciesIndex =
+      new DevParameter<>(
+          LiveReloadDependenciesIndex,
+          "LIVE_RELOAD_DEPENDENCIES_INDEX",
+          false,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Boolean> dependenciesPreload =
+      new DevParameter<>(
+          LiveReloadDependenciesPreload,
+          "LIVE_RELOAD_DEPENDENCIES_PRELOAD",
+          true,
+          String::valueOf,
+          Boolean::parseBoolean);
+
+  private final DevParameter<Boolean> eager =
+      new DevParameter<>(
+          LiveReloadEager, "LIVE_RELOAD_EAGER", false, String::valueOf, Boolean::parseBoolean);
+
+  private final DevParameter<Long> eagerDelay =
+      new DevParameter<>(
+          LiveReloadEagerDelay, "LIVE_RELOAD_EAGER_DELAY", 100L, String::valueOf, Long::parseLong);
+
+  private final DevParameter<Boolean> daemon =
+      new DevParameter<>(
+          LiveReloadDaemon, "LIVE_RELOAD_DAEMON", false, String::valueOf, Boolean::parseBoolean);
+
   /**
    * Creates new development server settings.
    *
@@ -84,6 +472,28 @@ public final class DevServerSettings {
     this.pluginSettings = pluginSettings;
   }
 
+  private DevServerSettings(
+      Map<String, String> javaOptionProperties,
+      Map<String, String> argsProperties,
+      Map<String, String> pluginSettings) {
+    this.javaOptionProperties = javaOptionProperties;
+    this.argsProperties = argsProperties;
+    this.pluginSettings = pluginSettings;
+  }
+
+  /**
+   * Creates a copy of these settings with the overridden application port. Used to run several
+   * instances of an application at the same time.
+   *
+   * @param port the port the application listens on
+   * @return the new settings
+   */
+  public DevServerSettings withHttpPort(int port) {
+    var args = new LinkedHashMap<>(argsProperties);
+    args.put(LiveReloadHttpPort, String.valueOf(port));
+    return new DevServerSettings(javaOptionProperties, args, pluginSettings);
+  }
+
   /**
    * Gets all configuration properties merged from different sources.
    *
@@ -103,6 +513,50 @@ public final class DevServerSettings {
     httpHost.putInto(merged);
     healthCheckPath.putInto(merged);
     debug.putInto(merged);
+    proxyQueueSize.putInto(merged);
+    proxyQueueBytes.putInto(merged);
+    blueGreen.putInto(merged);
+    httpPorts.putInto(merged);
+    proxyPoolMaxIdle.putInto(merged);
+    proxyPoolIdle.putInto(merged);
+    proxyPoolPrewarm.putInto(merged);
+    proxyProtocol.putInto(merged);
+    proxyHttp2.putInto(merged);
+    proxyHttpsPort.putInto(merged);
+    proxyKeystore.putInto(merged);
+    proxyKeystorePassword.putInto(merged);
+    proxyTimeout.putInto(merged);
+    drainTimeout.putInto(merged);
+    proxyReplayBytes.putInto(merged);
+    proxyCache.putInto(merged);
+    proxyCacheBytes.putInto(merged);
+    proxyCacheHeaders.putInto(merged);
+    proxyCacheStale.putInto(merged);
+    proxyStatic.putInto(merged);
+    proxyStaticCacheBytes.putInto(merged);
+    triggerInclude.putInto(merged);
+    triggerExclude.putInto(merged);
+    triggerHeaders.putInto(merged);
+    proxyCoalesce.putInto(merged);
+    proxyCoalesceBytes.putInto(merged);
+    proxyCoalesceExclude.putInto(merged);
+    proxyCompression.putInto(merged);
+    proxyCompressionProviders.putInto(merged);
+    proxyCompressionCacheBytes.putInto(merged);
+    proxyServerTiming.putInto(merged);
+    proxyLatency.putInto(merged);
+    proxyLatencySamples.putInto(merged);
+    proxyLatencyThreshold.putInto(merged);
+    shadow.putInto(merged);
+    shadowSample.putInto(merged);
+    proxyInProcess.putInto(merged);
+    normalizeBytecode.putInto(merged);
+    layers.putInto(merged);
+    dependenciesIndex.putInto(merged);
+    dependenciesPreload.putInto(merged);
+    eager.putInto(merged);
+    eagerDelay.putInto(merged);
+    daemon.putInto(merged);
     return merged;
   }
 
@@ -125,7 +579,9 @@ public final class DevServerSettings {
   }
 
   /**
-   * Gets the HTTP port for the target application server.
+   * Gets the HTTP port for the target application server. If it's 0, a free port is chosen on every
+   * start of the application, which has to read it from the {@link #LiveReloadHttpPort} system
+   * property.
    *
    * @return the target server port (default: 8080)
    */
@@ -160,6 +616,507 @@ public final class DevServerSettings {
     return debug.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
   }
 
+  /**
+   * Gets the maximum number of requests which are held by the proxy while the application is
+   * reloading. Requests above this limit are rejected with 503.
+   *
+   * @return the maximum number of waiting requests (default: 256)
+   */
+  public int getProxyQueueSize() {
+    return proxyQueueSize.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum total size of request bodies which are held by the proxy while the application
+   * is reloading. Requests above this limit are rejected with 503.
+   *
+   * @return the maximum size of waiting request bodies in bytes (default: 16 MiB)
+   */
+  public long getProxyQueueBytes() {
+    return proxyQueueBytes.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if blue/green reloading is enabled. In this mode a new version of the application is
+   * started on an alternate port while the old one keeps serving requests.
+   *
+   * @return true if blue/green mode is enabled, false otherwise (default: false)
+   */
+  public boolean isBlueGreen() {
+    return blueGreen.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the pool of ports which are used by the application in blue/green mode.
+   *
+   * @return the list of ports (default: the application port and the next one, or only 0 if free
+   *     ports are chosen)
+   */
+  public List<Integer> getHttpPorts() {
+    var ports = httpPorts.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+    if (ports.isEmpty()) {
+      return getHttpPort() == 0 ? List.of(0) : List.of(getHttpPort(), getHttpPort() + 1);
+    }
+    return ports;
+  }
+
+  /**
+   * Gets the maximum number of idle connections to the application which are kept by the proxy for
+   * reuse. The number of open connections isn't limited, a request which finds no idle connection
+   * opens a new one.
+   *
+   * @return the maximum number of idle connections (default: 16)
+   */
+  public int getProxyPoolMaxIdle() {
+    return proxyPoolMaxIdle.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the time after which an idle connection to the application is closed.
+   *
+   * @return the idle timeout in milliseconds (default: 60000)
+   */
+  public long getProxyPoolIdleMillis() {
+    return proxyPoolIdle.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the number of connections which are opened to the application right after it has started,
+   * so the first requests don't have to wait for a connect.
+   *
+   * @return the number of pre-opened connections (default: 4)
+   */
+  public int getProxyPoolPrewarm() {
+    return proxyPoolPrewarm.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the protocol which is used to talk to the application. Either "http1" or "h2c". In "h2c"
+   * mode requests are multiplexed over a few HTTP/2 connections if the application supports it,
+   * otherwise it falls back to HTTP/1.1.
+   *
+   * @return the protocol (default: "http1")
+   */
+  public String getProxyProtocol() {
+    return proxyProtocol.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if the proxy accepts HTTP/2 connections. Cleartext connections use prior knowledge or
+   * the h2c upgrade, TLS connections use ALPN.
+   *
+   * @return true if HTTP/2 is enabled, false otherwise (default: true)
+   */
+  public boolean isProxyHttp2() {
+    return proxyHttp2.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the HTTPS port for the proxy server. HTTPS is only enabled if a keystore is configured.
+   *
+   * @return the proxy server HTTPS port (default: 9443)
+   */
+  public int getProxyHttpsPort() {
+    return proxyHttpsPort.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the path to the keystore with a certificate for the proxy HTTPS listener.
+   *
+   * @return the keystore path, empty to disable HTTPS (default: empty)
+   */
+  public String getProxyKeystore() {
+    return proxyKeystore.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the password of the keystore with a certificate for the proxy HTTPS listener.
+   *
+   * @return the keystore password (default: empty)
+   */
+  public String getProxyKeystorePassword() {
+    return proxyKeystorePassword.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum time of a proxied request. gRPC requests aren't limited, as they may be
+   * long-lived streams.
+   *
+   * @return the request timeout in milliseconds, -1 for no limit (default: 30000)
+   */
+  public int getProxyTimeoutMillis() {
+    return proxyTimeout.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum time to wait for in-flight requests of the old application version to finish
+   * before it gets stopped.
+   *
+   * @return the drain timeout in milliseconds (default: 10000)
+   */
+  public long getDrainTimeoutMillis() {
+    return drainTimeout.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum body size of an idempotent request which is kept in memory, so the request can
+   * be sent again if the application restarts in the middle of it.
+   *
+   * @return the maximum size of a replayable body in bytes (default: 64 KiB)
+   */
+  public long getProxyReplayBytes() {
+    return proxyReplayBytes.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if the proxy caches responses to GET requests. Cached responses are dropped when the
+   * application is reloaded.
+   *
+   * @return true if the response cache is enabled, false otherwise (default: false)
+   */
+  public boolean isProxyCache() {
+    return proxyCache.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum total size of cached response bodies. Least recently used responses are
+   * evicted above this limit.
+   *
+   * @return the maximum size of the response cache in bytes (default: 64 MiB)
+   */
+  public long getProxyCacheBytes() {
+    return proxyCacheBytes.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the names of request headers which responses depend on. They're a part of the key of the
+   * response cache and of coalesced requests.
+   *
+   * @return the list of header names (default: Accept, Accept-Encoding, Accept-Language)
+   */
+  public List<String> getProxyCacheHeaders() {
+    return proxyCacheHeaders.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if cached responses of the previous version are served while the application is
+   * reloading. Such responses have the {@code Warning} header.
+   *
+   * @return true if stale responses are served during a reload, false otherwise (default: false)
+   */
+  public boolean isProxyCacheStale() {
+    return proxyCacheStale.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the URL prefixes which are served by the proxy straight from directories on disk. Such
+   * requests never reach the application and never trigger a reload.
+   *
+   * @return the map from URL prefixes to directories (default: empty)
+   */
+  public Map<String, String> getProxyStatic() {
+    return proxyStatic.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum memory used to keep small static files. Cached files are dropped as soon as
+   * they change on disk.
+   *
+   * @return the size of the static files cache in bytes (default: 10 MiB)
+   */
+  public int getProxyStaticCacheBytes() {
+    return proxyStaticCacheBytes.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the glob patterns of request paths which may trigger a reload. Other requests are served
+   * by the running version of the application.
+   *
+   * @return the list of glob patterns, empty to match every path (default: empty)
+   */
+  public List<String> getTriggerInclude() {
+    return triggerInclude.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the glob patterns of request paths which never trigger a reload, even if they match {@link
+   * #getTriggerInclude()}.
+   *
+   * @return the list of glob patterns (default: empty)
+   */
+  public List<String> getTriggerExclude() {
+    return triggerExclude.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the header conditions of requests which may trigger a reload. Each condition has the
+   * {@code Name: value} form and matches if the header contains the value, ignoring case. A request
+   * must match at least one of them.
+   *
+   * @return the list of header conditions, empty to match every request (default: empty)
+   */
+  public List<String> getTriggerHeaders() {
+    return triggerHeaders.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if identical concurrent GET requests share a single request to the application.
+   *
+   * @return true if requests are coalesced, false otherwise (default: false)
+   */
+  public boolean isProxyCoalesce() {
+    return proxyCoalesce.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum size of a response body which is shared between coalesced requests. If a
+   * response is larger, the waiting requests are sent to the application on their own.
+   *
+   * @return the maximum size of a shared response body in bytes (default: 1 MiB)
+   */
+  public long getProxyCoalesceBytes() {
+    return proxyCoalesceBytes.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the glob patterns of request paths which are never coalesced.
+   *
+   * @return the list of glob patterns (default: empty)
+   */
+  public List<String> getProxyCoalesceExclude() {
+    return proxyCoalesceExclude.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if the proxy compresses responses which the application sends uncompressed.
+   *
+   * @return true if responses are compressed, false otherwise (default: false)
+   */
+  public boolean isProxyCompression() {
+    return proxyCompression.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets additional content encodings, such as Brotli or zstd. Each one is implemented by a class
+   * which implements Undertow's {@code ContentEncodingProvider} and is preferred to gzip and
+   * deflate.
+   *
+   * @return the map from encoding names to provider class names (default: empty)
+   */
+  public Map<String, String> getProxyCompressionProviders() {
+    return proxyCompressionProviders.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the maximum total size of compressed bodies kept in memory. Only bodies of responses with
+   * {@code ETag} or {@code Last-Modified} are kept, until the application is reloaded.
+   *
+   * @return the maximum size of the compressed bodies cache in bytes (default: 32 MiB)
+   */
+  public long getProxyCompressionCacheBytes() {
+    return proxyCompressionCacheBytes.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks if proxied responses have the {@code Server-Timing} header, which shows how long a
+   * request has waited for a reload, the application startup, a connection and the response.
+   *
+   * @return true if the header is added, false otherwise (default: the value of {@link #isDebug()})
+   */
+  public boolean isProxyServerTiming() {
+    // Enabled in debug mode unless set explicitly
+    return proxyServerTiming
+        .getValue(javaOptionProperties, argsProperties, pluginSettings)
+        .orElseGet(this::isDebug);
+  }
+
+  /**
+   * Whether to record the latency of every route per application generation and warn if a route has
+   * become slower after a reload.
+   *
+   * @return true if latency regressions are reported
+   */
+  public boolean isProxyLatency() {
+    return proxyLatency.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the number of responses of a route in both generations which are required to compare their
+   * latency.
+   *
+   * @return the number of samples
+   */
+  public int getProxyLatencySamples() {
+    return proxyLatencySamples.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets how many times the median or the 99th percentile latency of a route has to grow to be
+   * reported as a regression.
+   *
+   * @return the ratio of latencies
+   */
+  public double getProxyLatencyThreshold() {
+    return proxyLatencyThreshold.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Whether to keep the previous generation of the application running after a reload and mirror a
+   * sample of GET requests to it, comparing its latency and responses with the current one. It
+   * requires blue/green reloading.
+   *
+   * @return true if shadow traffic is enabled
+   */
+  public boolean isShadow() {
+    return shadow.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the fraction of GET requests which are mirrored to the previous generation.
+   *
+   * @return the fraction from 0 to 1
+   */
+  public double getShadowSample() {
+    return shadowSample.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Whether to call request handlers registered by the application directly instead of proxying
+   * requests over HTTP.
+   *
+   * @return true if in-process handlers are used
+   */
+  public boolean isProxyInProcess() {
+    return proxyInProcess.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Whether class files which differ only in debug information, such as line numbers, are
+   * considered unchanged, so the application isn't restarted for them.
+   *
+   * @return true if debug information is ignored when comparing class files
+   */
+  public boolean isNormalizeBytecode() {
+    return normalizeBytecode.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Whether every module of the application gets its own ClassLoader, so only the changed modules
+   * and the modules which depend on them are reloaded.
+   *
+   * @return true if unchanged modules are kept loaded across reloads
+   */
+  public boolean isLayeredClassLoaders() {
+    return layers.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Whether classes and resources of dependencies are looked up using an index of the packages of
+   * every jar instead of checking the jars one by one.
+   *
+   * @return true if dependency lookups are indexed (default: false)
+   */
+  public boolean isDependenciesIndex() {
+    return dependenciesIndex.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Whether classes of dependencies which were loaded during the previous run are loaded in the
+   * background on start. Works only if dependency lookups are indexed.
+   *
+   * @return true if classes of dependencies are preloaded
+   */
+  public boolean isDependenciesPreload() {
+    return dependenciesPreload.getValueOrDefault(
+        javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks whether the application is reloaded in the background as soon as a change is detected,
+   * instead of on the next request.
+   *
+   * @return true if reloads are eager (default: false)
+   */
+  public boolean isEager() {
+    return eager.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Gets the time without new changes after which an eager reload starts, so a burst of changes
+   * causes only one reload.
+   *
+   * @return the delay in milliseconds (default: 100)
+   */
+  public long getEagerDelayMillis() {
+    return eagerDelay.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Checks whether the application is run without the proxy, which is the case for applications
+   * which don't serve HTTP. Such applications are started immediately and reloaded eagerly, and
+   * they're considered ready when the startup hooks finish.
+   *
+   * @return true if the proxy is disabled (default: false)
+   */
+  public boolean isDaemon() {
+    return daemon.getValueOrDefault(javaOptionProperties, argsProperties, pluginSettings);
+  }
+
+  /**
+   * Parses a comma-separated list of port numbers.
+   *
+   * @param portsValue the string representation of the ports
+   * @return the list of parsed port numbers
+   * @throws IllegalArgumentException if any of the values is not a valid integer
+   */
+  public static List<Integer> parsePorts(String portsValue) {
+    return Arrays.stream(portsValue.split(","))
+        .map(String::trim)
+        .filter((v) -> !v.isEmpty())
+        .map(DevServerSettings::parsePort)
+        .toList();
+  }
+
+  /**
+   * Parses a comma-separated list of values.
+   *
+   * @param value the string representation of the list
+   * @return the list of trimmed non-empty values
+   */
+  public static List<String> parseList(String value) {
+    return Arrays.stream(value.split(",")).map(String::trim).filter((v) -> !v.isEmpty()).toList();
+  }
+
+  /**
+   * Parses a comma-separated list of {@code key=value} pairs.
+   *
+   * @param value the string representation of the pairs
+   * @return the map which preserves the order of the pairs
+   * @throws IllegalArgumentException if a pair doesn't contain {@code =}
+   */
+  public static Map<String, String> parseMapping(String value) {
+    var result = new LinkedHashMap<String, String>();
+    for (var pair : parseList(value)) {
+      var separator = pair.indexOf('=');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Expected key=value, got: " + pair);
+      }
+      result.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+    }
+    return result;
+  }
+
   /**
    * Parses a string value as a port number.
    *
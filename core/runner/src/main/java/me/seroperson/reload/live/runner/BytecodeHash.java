@@ -0,0 +1,131 @@
+package me.seroperson.reload.live.runner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Hashes class files without their debug information, so a class which is recompiled after a
+ * comment edit or a reformat has the same hash.
+ *
+ * <p>Only the attributes which the JVM doesn't need to run the code are skipped: line numbers,
+ * local variable names, source file names and compiler-only metadata. Everything else, including
+ * the constant pool, is hashed as is.
+ */
+final class BytecodeHash {
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private static final Set<String> DEBUG_ATTRIBUTES =
+      Set.of(
+          "LineNumberTable",
+          "LocalVariableTable",
+          "LocalVariableTypeTable",
+          "SourceFile",
+          "SourceDebugExtension",
+          // Refers to the .tasty file of Scala 3, which holds positions
+          "TASTY");
+
+  /**
+   * @param bytes the content of a class file
+   * @return the hash of the class file without debug information
+   * @throws IllegalArgumentException if the class file is malformed
+   */
+  static long hash(byte[] bytes) {
+    try {
+      return new BytecodeHash(bytes).hash();
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed class file", e);
+    }
+  }
+
+  private final ByteBuffer buffer;
+  private final CRC32C crc = new CRC32C();
+  // Start of the range which hasn't been hashed yet
+  private int hashedUntil = 0;
+  private String[] utf8;
+
+  private BytecodeHash(byte[] bytes) {
+    this.buffer = ByteBuffer.wrap(bytes);
+  }
+
+  private long hash() {
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a class file");
+    }
+    buffer.getShort(); // minor version
+    buffer.getShort(); // major version
+    readConstantPool();
+    buffer.position(buffer.position() + 6); // access flags, this class, super class
+    var interfaces = buffer.getShort() & 0xFFFF;
+    buffer.position(buffer.position() + interfaces * 2);
+    readMembers(); // fields
+    readMembers(); // methods
+    readAttributes();
+    skip(buffer.position(), buffer.limit());
+    return crc.getValue();
+  }
+
+  private void readConstantPool() {
+    var count = buffer.getShort() & 0xFFFF;
+    utf8 = new String[count];
+    for (int i = 1; i < count; i++) {
+      var tag = buffer.get();
+      switch (tag) {
+        case 1 -> {
+          var length = buffer.getShort() & 0xFFFF;
+          utf8[i] =
+              new String(buffer.array(), buffer.position(), length, StandardCharsets.ISO_8859_1);
+          buffer.position(buffer.position() + length);
+        }
+        case 3, 4, 9, 10, 11, 12, 17, 18 -> buffer.position(buffer.position() + 4);
+        case 5, 6 -> {
+          buffer.position(buffer.position() + 8);
+          // Takes two entries
+          i++;
+        }
+        case 7, 8, 16, 19, 20 -> buffer.position(buffer.position() + 2);
+        case 15 -> buffer.position(buffer.position() + 3);
+        default -> throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+      }
+    }
+  }
+
+  private void readMembers() {
+    var count = buffer.getShort() & 0xFFFF;
+    for (int i = 0; i < count; i++) {
+      buffer.position(buffer.position() + 6); // access flags, name, descriptor
+      readAttributes();
+    }
+  }
+
+  private void readAttributes() {
+    var count = buffer.getShort() & 0xFFFF;
+    for (int i = 0; i < count; i++) {
+      var start = buffer.position();
+      var name = utf8[buffer.getShort() & 0xFFFF];
+      var length = buffer.getInt();
+      var end = buffer.position() + length;
+      if (DEBUG_ATTRIBUTES.contains(name)) {
+        skip(start, end);
+      } else if ("Code".equals(name)) {
+        buffer.position(buffer.position() + 4); // max stack, max locals
+        var codeLength = buffer.getInt();
+        buffer.position(buffer.position() + codeLength);
+        var exceptions = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + exceptions * 8);
+        // The length of the attribute includes the nested debug attributes, so it's skipped too
+        skip(start + 2, start + 6);
+        readAttributes();
+      }
+      buffer.position(end);
+    }
+  }
+
+  /** Hashes everything before the range and excludes the range from the hash. */
+  private void skip(int from, int to) {
+    crc.update(buffer.array(), hashedUntil, from - hashedUntil);
+    hashedUntil = to;
+  }
+}
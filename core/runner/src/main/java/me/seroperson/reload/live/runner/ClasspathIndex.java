@@ -0,0 +1,557 @@
+package me.seroperson.reload.live.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Fingerprints of the files of the compiled classpath, which tell exactly which files have been
+ * added, changed or removed by a compilation.
+ *
+ * <p>Every file is fingerprinted by its size and modification time, and by the hash of its content
+ * once it has changed, so a file which is rewritten with the same content doesn't count as changed,
+ * while a file restored with an older modification time does. Class files may be hashed without
+ * their debug information, see {@link BytecodeHash}, then they're hashed as soon as they appear, so
+ * even their first recompilation is compared by content. Classpath directories are watched, so
+ * after a compilation only the files which the watcher has reported are checked, and the work is
+ * proportional to what has changed. The watcher delivers events in the background, so a sentinel
+ * file is created and removed in every watched directory, and the events are drained until the
+ * sentinel is reported, which means that everything written before it is reported too. A directory
+ * is scanned in full if it can't be watched natively, if its watcher has lost events or didn't
+ * report the sentinel in time, and on the first compilation.
+ *
+ * <p>The index is persisted to the temporary directory when closed, so the content hashes survive
+ * restarts. Files may change while nothing is watching them, so the first compilation after a
+ * restart still walks the directories, but only the files whose size or modification time differ
+ * from the persisted ones are read.
+ */
+final class ClasspathIndex implements Closeable {
+
+  private static final int FORMAT_VERSION = 2;
+  // Not computed until the file changes for the first time, or couldn't be computed
+  private static final long UNKNOWN_HASH = 0L;
+  // Created and removed right away, so it never stays on the classpath
+  private static final String SENTINEL = ".live-reload-sentinel";
+  private static final long SENTINEL_TIMEOUT_MILLIS = 2000L;
+
+  private final Path storage;
+  private final boolean normalizeBytecode;
+  private final WatchService watchService;
+  // Polling watchers report changes with a delay, so scanning is the only way to be up to date
+  private final boolean nativeWatcher;
+
+  private final Map<Path, Root> roots = new LinkedHashMap<>();
+  private final Map<WatchKey, Watched> watchKeys = new HashMap<>();
+  private boolean dirty;
+
+  /**
+   * Creates an index.
+   *
+   * @param storage the file the index is persisted to
+   * @param normalizeBytecode whether debug information of class files is ignored
+   */
+  ClasspathIndex(Path storage, boolean normalizeBytecode) {
+    this.storage = storage;
+    this.normalizeBytecode = normalizeBytecode;
+    WatchService service = null;
+    try {
+      service = FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      // Every directory is scanned in full then
+    }
+    this.watchService = service;
+    this.nativeWatcher = service != null && !service.getClass().getName().contains("Polling");
+    load();
+  }
+
+  /**
+   * @param classpath the classpath
+   * @return the file the index of the classpath is persisted to
+   */
+  static Path defaultStorage(List<File> classpath) {
+    var key = new CRC32C();
+    for (var file : classpath) {
+      key.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    }
+    return Path.of(
+        System.getProperty("java.io.tmpdir"),
+        "jvm-live-reload",
+        "classpath-" + Long.toHexString(key.getValue()) + ".idx");
+  }
+
+  /**
+   * Brings the index up to date with the classpath.
+   *
+   * @param classpath the compiled classpath, directories and jars
+   * @return the files which have changed since the previous call
+   */
+  synchronized Changes update(List<File> classpath) {
+    var changes = new Changes();
+    var current = new HashSet<Path>();
+    for (var file : classpath) {
+      current.add(file.toPath().toAbsolutePath().normalize());
+    }
+    // Entries which aren't on the classpath anymore are removed
+    for (var iterator = roots.entrySet().iterator(); iterator.hasNext(); ) {
+      var entry = iterator.next();
+      if (!current.contains(entry.getKey())) {
+        entry
+            .getValue()
+            .files
+            .keySet()
+            .forEach((v) -> changes.add(changes.removed, entry.getKey(), v));
+        entry.getValue().cancel();
+        iterator.remove();
+      }
+    }
+
+    var fullScan = new HashSet<Root>();
+    var watched = new HashSet<Root>();
+    for (var path : current) {
+      var root = roots.computeIfAbsent(path, Root::new);
+      if (isWatched(root) && writeSentinel(root)) {
+        watched.add(root);
+      }
+    }
+    if (watchService != null) {
+      drainEvents(changes, fullScan, new HashSet<>(watched));
+    }
+    for (var path : current) {
+      var root = roots.get(path);
+      if (!watched.contains(root) || fullScan.contains(root)) {
+        scan(root, changes);
+      }
+    }
+    dirty |= !changes.isEmpty();
+    return changes;
+  }
+
+  private boolean isWatched(Root root) {
+    return root.scanned
+        && nativeWatcher
+        && Files.isDirectory(root.path)
+        && root.key != null
+        && root.key.isValid();
+  }
+
+  /**
+   * Creates and removes the sentinel file, whose events follow the events of everything written
+   * before.
+   *
+   * @return true if the sentinel has been written
+   */
+  private boolean writeSentinel(Root root) {
+    var sentinel = root.path.resolve(SENTINEL);
+    try {
+      Files.deleteIfExists(sentinel);
+      Files.createFile(sentinel);
+      Files.delete(sentinel);
+      return true;
+    } catch (IOException e) {
+      // The root is scanned in full
+      return false;
+    }
+  }
+
+  /**
+   * Checks the paths reported by the watcher until it has reported the sentinels of all the awaited
+   * roots. The roots whose sentinels haven't been reported in time are scanned in full.
+   */
+  private void drainEvents(Changes changes, Set<Root> fullScan, Set<Root> awaited) {
+    var deadline = System.currentTimeMillis() + SENTINEL_TIMEOUT_MILLIS;
+    while (true) {
+      WatchKey key;
+      if (awaited.isEmpty()) {
+        key = watchService.poll();
+      } else {
+        var remaining = deadline - System.currentTimeMillis();
+        try {
+          key = remaining > 0 ? watchService.poll(remaining, TimeUnit.MILLISECONDS) : null;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          key = null;
+        }
+        if (key == null) {
+          fullScan.addAll(awaited);
+          awaited.clear();
+          continue;
+        }
+      }
+      if (key == null) {
+        return;
+      }
+      var watched = watchKeys.get(key);
+      if (watched != null) {
+        for (var event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            fullScan.add(watched.root);
+            awaited.remove(watched.root);
+          } else if (SENTINEL.equals(event.context().toString())) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE
+                && watched.directory.equals(watched.root.path)) {
+              awaited.remove(watched.root);
+            }
+          } else if (!fullScan.contains(watched.root)) {
+            var path = watched.directory.resolve((Path) event.context());
+            check(watched.root, path, changes);
+          }
+        }
+      }
+      if (!key.reset()) {
+        watchKeys.remove(key);
+      }
+    }
+  }
+
+  /** Checks a single file or directory reported by the watcher. */
+  private void check(Root root, Path path, Changes changes) {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (IOException e) {
+      // Removed, along with everything inside if it was a directory
+      var relative = root.relative(path);
+      if (root.files.remove(relative) != null) {
+        changes.add(changes.removed, root.path, relative);
+      }
+      var nested = root.files.subMap(relative + "/", relative + "0");
+      nested.keySet().forEach((v) -> changes.add(changes.removed, root.path, v));
+      nested.clear();
+      return;
+    }
+    if (attributes.isDirectory()) {
+      // Files could have been written before the directory got watched
+      walk(root, path, changes, null);
+    } else if (attributes.isRegularFile()) {
+      fingerprint(root, path, attributes, changes);
+    }
+  }
+
+  /** Scans a root in full, finding out which files have been removed. */
+  private void scan(Root root, Changes changes) {
+    var seen = new HashSet<String>();
+    if (Files.isDirectory(root.path)) {
+      walk(root, root.path, changes, seen);
+    } else {
+      try {
+        var attributes = Files.readAttributes(root.path, BasicFileAttributes.class);
+        fingerprint(root, root.path, attributes, changes);
+        seen.add(root.relative(root.path));
+      } catch (IOException e) {
+        // Missing classpath entries are ignored
+      }
+    }
+    for (var iterator = root.files.keySet().iterator(); iterator.hasNext(); ) {
+      var relative = iterator.next();
+      if (!seen.contains(relative)) {
+        changes.add(changes.removed, root.path, relative);
+        iterator.remove();
+      }
+    }
+    root.scanned = true;
+  }
+
+  private void walk(Root root, Path directory, Changes changes, Set<String> seen) {
+    try {
+      Files.walkFileTree(
+          directory,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+              register(root, dir);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+              if (attributes.isRegularFile()) {
+                var relative = fingerprint(root, file, attributes, changes);
+                if (seen != null) {
+                  seen.add(relative);
+                }
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+              // Removed while walking
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (NoSuchFileException e) {
+      // Removed before walking
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void register(Root root, Path directory) {
+    if (watchService == null || !nativeWatcher) {
+      return;
+    }
+    try {
+      var key =
+          directory.register(
+              watchService,
+              StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_DELETE,
+              StandardWatchEventKinds.ENTRY_MODIFY);
+      watchKeys.put(key, new Watched(root, directory));
+      if (directory.equals(root.path)) {
+        root.key = key;
+      }
+    } catch (IOException e) {
+      // The root is scanned in full next time
+      root.key = null;
+    }
+  }
+
+  /**
+   * Updates the fingerprint of a file.
+   *
+   * @return the path of the file relative to its root
+   */
+  private String fingerprint(
+      Root root, Path file, BasicFileAttributes attributes, Changes changes) {
+    var relative = root.relative(file);
+    if (relative.equals("/" + SENTINEL)) {
+      return relative;
+    }
+    if (normalizeBytecode && relative.endsWith(".tasty")) {
+      // Read only by the Scala 3 compiler, and changes with every edit as it holds positions
+      return relative;
+    }
+    var size = attributes.size();
+    var modified = attributes.lastModifiedTime().toMillis();
+    var previous = root.files.get(relative);
+    if (previous == null) {
+      var hash = normalizeBytecode && relative.endsWith(".class") ? hash(file) : UNKNOWN_HASH;
+      root.files.put(relative, new Fingerprint(size, modified, hash));
+      changes.add(changes.added, root.path, relative);
+    } else if (previous.size != size || previous.modified != modified) {
+      var hash = hash(file);
+      // The hash is unknown until the file has changed once, so the change can't be ruled out
+      if (previous.hash == UNKNOWN_HASH || hash == UNKNOWN_HASH || previous.hash != hash) {
+        changes.add(changes.changed, root.path, relative);
+      }
+      root.files.put(relative, new Fingerprint(size, modified, hash));
+    }
+    return relative;
+  }
+
+  private long hash(Path file) {
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(file);
+    } catch (IOException e) {
+      return UNKNOWN_HASH;
+    }
+    long hash;
+    if (normalizeBytecode && file.getFileName().toString().endsWith(".class")) {
+      try {
+        hash = BytecodeHash.hash(bytes);
+      } catch (IllegalArgumentException e) {
+        hash = crc(bytes);
+      }
+    } else {
+      hash = crc(bytes);
+    }
+    // Zero is reserved for unknown hashes
+    return hash == UNKNOWN_HASH ? 1L : hash;
+  }
+
+  private static long crc(byte[] bytes) {
+    var crc = new CRC32C();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  private void load() {
+    if (!Files.isRegularFile(storage)) {
+      return;
+    }
+    try (var in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(storage), 64 * 1024))) {
+      if (in.readInt() != FORMAT_VERSION || in.readBoolean() != normalizeBytecode) {
+        return;
+      }
+      var rootCount = in.readInt();
+      for (int i = 0; i < rootCount; i++) {
+        var root = new Root(Path.of(in.readUTF()));
+        var fileCount = in.readInt();
+        for (int j = 0; j < fileCount; j++) {
+          root.files.put(
+              in.readUTF(), new Fingerprint(in.readLong(), in.readLong(), in.readLong()));
+        }
+        roots.put(root.path, root);
+      }
+    } catch (IOException | RuntimeException e) {
+      // A broken index is rebuilt from scratch
+      roots.clear();
+    }
+  }
+
+  private void save() throws IOException {
+    Files.createDirectories(storage.getParent());
+    var temporary = storage.resolveSibling(storage.getFileName() + ".tmp");
+    try (var out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeBoolean(normalizeBytecode);
+      out.writeInt(roots.size());
+      for (var root : roots.values()) {
+        out.writeUTF(root.path.toString());
+        out.writeInt(root.files.size());
+        for (var entry : root.files.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeLong(entry.getValue().size);
+          out.writeLong(entry.getValue().modified);
+          out.writeLong(entry.getValue().hash);
+        }
+      }
+    }
+    Files.move(temporary, storage, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (dirty) {
+      try {
+        save();
+      } catch (IOException e) {
+        // It's only a cache
+      }
+    }
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        // Nothing to do
+      }
+    }
+  }
+
+  /** Files which have changed, by their absolute paths. */
+  static final class Changes {
+    private final List<String> added = new ArrayList<>();
+    private final List<String> changed = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+    private final Set<Path> roots = new HashSet<>();
+
+    private void add(List<String> files, Path root, String relative) {
+      files.add(root + relative);
+      roots.add(root);
+    }
+
+    List<String> getAdded() {
+      return added;
+    }
+
+    List<String> getChanged() {
+      return changed;
+    }
+
+    List<String> getRemoved() {
+      return removed;
+    }
+
+    /**
+     * @param root a classpath entry
+     * @return true if any file of the classpath entry has changed
+     */
+    boolean contains(File root) {
+      return roots.contains(root.toPath().toAbsolutePath().normalize());
+    }
+
+    boolean isEmpty() {
+      return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return added.size()
+          + " added, "
+          + changed.size()
+          + " changed, "
+          + removed.size()
+          + " removed";
+    }
+  }
+
+  /** A classpath entry, either a directory or a jar. */
+  private static final class Root {
+    private final Path path;
+    // Sorted, so the files of a removed directory are a range
+    private final TreeMap<String, Fingerprint> files = new TreeMap<>();
+    private boolean scanned;
+    private WatchKey key;
+
+    private Root(Path path) {
+      this.path = path;
+    }
+
+    /**
+     * @return the path relative to the root, starting with a slash, or empty for the root itself
+     */
+    private String relative(Path file) {
+      var relative = path.relativize(file).toString().replace(File.separatorChar, '/');
+      return relative.isEmpty() ? "" : "/" + relative;
+    }
+
+    private void cancel() {
+      if (key != null) {
+        key.cancel();
+      }
+    }
+  }
+
+  private static final class Watched {
+    private final Root root;
+    private final Path directory;
+
+    private Watched(Root root, Path directory) {
+      this.root = root;
+      this.directory = directory;
+    }
+  }
+
+  private static final class Fingerprint {
+    private final long size;
+    private final long modified;
+    private final long hash;
+
+    private Fingerprint(long size, long modified, long hash) {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+    }
+  }
+}
@@ -4,6 +4,8 @@ import static java.util.Objects.requireNonNull;
 import static java.util.Objects.requireNonNullElse;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
@@ -26,6 +28,7 @@ public interface CompileResult {
    */
   class CompileSuccess implements CompileResult {
     private final List<File> classpath;
+    private final List<List<File>> layers;
 
     /**
      * Creates a new successful compilation result.
@@ -33,7 +36,20 @@ public interface CompileResult {
      * @param classpath the list of classpath entries from compilation, or null for empty list
      */
     public CompileSuccess(List<File> classpath) {
+      this(classpath, null);
+    }
+
+    /**
+     * Creates a new successful compilation result, which knows the modules the classpath consists
+     * of.
+     *
+     * @param classpath the list of classpath entries from compilation, or null for empty list
+     * @param layers the classpath entries of every module, ordered so that every module comes after
+     *     the modules it depends on, or null if unknown
+     */
+    public CompileSuccess(List<File> classpath, List<List<File>> layers) {
       this.classpath = requireNonNullElse(classpath, List.of());
+      this.layers = layers;
     }
 
     /**
@@ -44,6 +60,31 @@ public interface CompileResult {
     public List<File> getClasspath() {
       return classpath;
     }
+
+    /**
+     * Gets the classpath entries grouped by module. Entries which don't belong to any module are
+     * put into the last group.
+     *
+     * @return the classpath entries of every module, dependencies first, or the whole classpath as
+     *     a single group if modules are unknown
+     */
+    public List<List<File>> getLayers() {
+      if (layers == null || layers.isEmpty()) {
+        return List.of(classpath);
+      }
+      var result = new ArrayList<List<File>>();
+      var remaining = new LinkedHashSet<>(classpath);
+      for (var layer : layers) {
+        result.add(layer);
+        layer.forEach(remaining::remove);
+      }
+      if (!remaining.isEmpty()) {
+        var last = new ArrayList<>(result.remove(result.size() - 1));
+        last.addAll(remaining);
+        result.add(last);
+      }
+      return result;
+    }
   }
 
   /**
@@ -25,4 +25,14 @@ public interface DevServer extends Closeable {
    * @return true if the application was reloaded, false if no reload was necessary
    */
   boolean reload();
+
+  /**
+   * Reports what the server has measured, for instance the comparison of the current and the
+   * previous versions of the application.
+   *
+   * @return the multiline report, or null if there is nothing to report
+   */
+  default String report() {
+    return null;
+  }
 }
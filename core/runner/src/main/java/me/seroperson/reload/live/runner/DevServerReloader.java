@@ -5,16 +5,17 @@ import static me.seroperson.reload.live.runner.DevServerRunner.urls;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
 import me.seroperson.reload.live.ReloadGeneration;
 import me.seroperson.reload.live.build.BuildLink;
 import me.seroperson.reload.live.runner.CompileResult.CompileFailure;
@@ -33,25 +34,42 @@ final class DevServerReloader implements BuildLink, Closeable {
 
   private final ClassLoader dependenciesClassLoader;
 
+  // Whether class files which differ only in debug information are considered unchanged
+  private final boolean normalizeBytecode;
+
+  // Whether every module gets its own classloader, so unchanged ones are reused across reloads
+  private final boolean layeredClassLoaders;
+
   // The current classloader for the application
   private volatile URLClassLoader currentApplicationClassLoader;
 
+  // The classloaders of the modules, dependencies first. The last one is the current classloader
+  // for the application. Used only if layered classloaders are enabled.
+  private List<Layer> layers = List.of();
+
   // Flag to force a reload on the next request.
   // This is set if a compile error occurs.
   private volatile boolean forceReloadNextTime = false;
 
-  // Whether any source files have changed since the last request.
-  private volatile boolean changed = false;
+  // Bumped by the file watcher (and by a positive triggerReload poll) on every change.
+  // A request needs to take the lock only if it differs from appliedChangeStamp.
+  private final AtomicLong changeStamp = new AtomicLong(0L);
+
+  // The value of changeStamp which was observed by the last reload attempt.
+  private volatile long appliedChangeStamp = 0L;
 
-  // Last time the classpath was modified in millis. Used to determine whether
-  // anything on the
-  // classpath has changed as a result of compilation, and therefore a new
-  // classloader is needed
-  // and the app needs to be reloaded.
-  private volatile long lastModified = 0L;
+  // Fingerprints of the classpath. Used to determine whether anything on the classpath has
+  // changed as a result of compilation, and therefore a new classloader is needed and the app
+  // needs to be reloaded. Created on the first compilation, as it's keyed by the classpath.
+  private ClasspathIndex classpathIndex;
 
   private final FileWatcher watcher;
 
+  // Notified about changes, so the server may reload eagerly
+  private volatile Runnable changeListener;
+  // Notified whenever the application has started
+  private volatile Runnable startListener;
+
   private final AtomicInteger classLoaderVersion = new AtomicInteger(0);
 
   DevServerReloader(
@@ -59,17 +77,22 @@ final class DevServerReloader implements BuildLink, Closeable {
       Supplier<CompileResult> compile,
       Supplier<Boolean> triggerReload,
       List<File> monitoredFiles,
-      FileWatchService fileWatchService) {
+      FileWatchService fileWatchService,
+      boolean normalizeBytecode,
+      boolean layeredClassLoaders) {
     this.dependenciesClassLoader = dependenciesClassLoader;
+    this.normalizeBytecode = normalizeBytecode;
+    this.layeredClassLoaders = layeredClassLoaders;
     this.compile = compile;
     this.triggerReload = triggerReload;
     if (!monitoredFiles.isEmpty() && fileWatchService != null) {
-      // Create the watcher, updates the changed boolean when a file has changed:
+      // Create the watcher, bumps the change stamp when a file has changed:
       this.watcher =
           fileWatchService.watch(
               monitoredFiles,
               () -> {
-                changed = true;
+                changeStamp.incrementAndGet();
+                notifyChangeListener();
                 return null;
               });
     } else {
@@ -108,22 +131,20 @@ final class DevServerReloader implements BuildLink, Closeable {
 
       // We only want to reload if the classpath has changed.
       // Assets don't live on the classpath, so they won't trigger a reload.
-      long newLastModified =
-          cp.stream()
-              .filter(File::exists)
-              .flatMap(DevServerReloader::listRecursively)
-              .mapToLong(File::lastModified)
-              .max()
-              .orElse(0L);
-      var triggered = newLastModified > lastModified;
-      lastModified = newLastModified;
+      if (classpathIndex == null) {
+        classpathIndex = new ClasspathIndex(ClasspathIndex.defaultStorage(cp), normalizeBytecode);
+      }
+      var changes = classpathIndex.update(cp);
+      var triggered = !changes.isEmpty();
 
       if (triggered || shouldReload || currentApplicationClassLoader == null) {
         int iteration = classLoaderVersion.incrementAndGet();
         // Create a new classloader
         currentApplicationClassLoader =
-            new NamedURLClassLoader(
-                "iteration(" + iteration + ")", urls(cp), dependenciesClassLoader);
+            layeredClassLoaders
+                ? createLayers(result.getLayers(), changes, iteration)
+                : new NamedURLClassLoader(
+                    "iteration(" + iteration + ")", urls(cp), dependenciesClassLoader);
 
         /*
         @formatter:off
@@ -173,10 +194,60 @@ final class DevServerReloader implements BuildLink, Closeable {
     }
   }
 
+  /**
+   * Creates a chain of classloaders, one per module, reusing the classloaders of the modules which
+   * haven't changed and don't depend on changed ones. The classloaders of the modules are closed
+   * once all the application classloaders which use them are closed.
+   *
+   * @param classpath the classpath entries of every module, dependencies first
+   * @param changes the files which have changed since the previous compilation
+   * @param iteration the number of the reload
+   * @return the classloader of the last module
+   */
+  private URLClassLoader createLayers(
+      List<List<File>> classpath, ClasspathIndex.Changes changes, int iteration) {
+    var result = new ArrayList<Layer>(classpath.size());
+    ClassLoader parent = dependenciesClassLoader;
+    var reused = true;
+    for (int i = 0; i < classpath.size() - 1; i++) {
+      var files = classpath.get(i);
+      // A layer may have been closed already if the application has been stopped
+      reused =
+          reused
+              && i < layers.size()
+              && layers.get(i).classpath.equals(files)
+              && files.stream().noneMatch(changes::contains)
+              && layers.get(i).retain();
+      Layer layer;
+      if (reused) {
+        layer = layers.get(i);
+      } else {
+        layer =
+            new Layer(
+                files,
+                new NamedURLClassLoader("layer(" + i + ")@" + iteration, urls(files), parent));
+        layer.retain();
+      }
+      result.add(layer);
+      parent = layer.classLoader;
+    }
+    // The last module is always reloaded, as a reload needs a new classloader
+    var files = classpath.get(classpath.size() - 1);
+    var classLoader =
+        new ApplicationClassLoader(
+            "iteration(" + iteration + ")", urls(files), parent, List.copyOf(result));
+    result.add(new Layer(files, classLoader));
+    layers = result;
+    return classLoader;
+  }
+
   /**
    * Contrary to its name, this doesn't necessarily reload the app. It is invoked on every request,
    * and will only trigger a reload of the app if something has changed.
    *
+   * <p>The check whether anything has changed is lock-free, so concurrent requests only contend for
+   * the monitor when there is a pending change.
+   *
    * <p>Since this communicates across classloaders, it must return only simple objects.
    *
    * @return Either<br>
@@ -186,35 +257,140 @@ final class DevServerReloader implements BuildLink, Closeable {
    *     - {@code null} - If nothing changed.
    */
   @Override
-  public synchronized Object reload() {
-    if (changed
-        || (triggerReload != null && triggerReload.get())
-        || forceReloadNextTime
-        || currentApplicationClassLoader == null) {
+  public Object reload() {
+    if (!isReloadPending()) {
+      return null; // null means nothing changed
+    }
+    synchronized (this) {
+      // Somebody could have already handled this change while we were waiting for the lock
+      var stamp = changeStamp.get();
+      if (stamp == appliedChangeStamp
+          && !forceReloadNextTime
+          && currentApplicationClassLoader != null) {
+        return null; // null means nothing changed
+      }
       var shouldReload = forceReloadNextTime;
-      changed = false;
+      appliedChangeStamp = stamp;
       forceReloadNextTime = false;
       // use Reloader context ClassLoader to avoid ClassLoader leaks in
       // sbt/scala-compiler threads
       return withReloaderContextClassLoader(() -> reload(shouldReload));
-    } else {
-      return null; // null means nothing changed
     }
   }
 
-  private static Stream<File> listRecursively(File file) {
-    try {
-      return Files.walk(file.toPath())
-          .filter(path -> !(Files.isDirectory(path) && path.equals(file.toPath())))
-          .map(Path::toFile);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  @Override
+  public boolean isReloadPending() {
+    // triggerReload may reset its state on every call (like gradle's Deployment.status() does),
+    // so a positive answer is converted to a stamp bump to not lose it.
+    if (triggerReload != null && triggerReload.get()) {
+      changeStamp.incrementAndGet();
+      notifyChangeListener();
+    }
+    return changeStamp.get() != appliedChangeStamp
+        || forceReloadNextTime
+        || currentApplicationClassLoader == null;
+  }
+
+  @Override
+  public void setChangeListener(Runnable listener) {
+    changeListener = listener;
+  }
+
+  /**
+   * Sets the action which is run whenever the application has started.
+   *
+   * @param listener the action, or null to do nothing
+   */
+  void setStartListener(Runnable listener) {
+    startListener = listener;
+  }
+
+  @Override
+  public void applicationStarted() {
+    var listener = startListener;
+    if (listener != null) {
+      listener.run();
+    }
+  }
+
+  private void notifyChangeListener() {
+    var listener = changeListener;
+    if (listener != null) {
+      listener.run();
     }
   }
 
   @Override
   public void close() {
+    changeListener = null;
+    startListener = null;
     currentApplicationClassLoader = null;
     if (watcher != null) watcher.stop();
+    synchronized (this) {
+      layers = List.of();
+      if (classpathIndex != null) {
+        classpathIndex.close();
+        classpathIndex = null;
+      }
+    }
+  }
+
+  /** The classloader of a module. */
+  private static final class Layer {
+    private final List<File> classpath;
+    private final URLClassLoader classLoader;
+    // The number of application classloaders which use this one
+    private int references;
+    private boolean closed;
+
+    private Layer(List<File> classpath, URLClassLoader classLoader) {
+      this.classpath = classpath;
+      this.classLoader = classLoader;
+    }
+
+    /**
+     * @return false if the classloader has been closed and can't be used anymore
+     */
+    private synchronized boolean retain() {
+      if (closed) {
+        return false;
+      }
+      references++;
+      return true;
+    }
+
+    private synchronized void release() {
+      if (--references == 0) {
+        closed = true;
+        try {
+          classLoader.close();
+        } catch (IOException e) {
+          // Nothing to do
+        }
+      }
+    }
+  }
+
+  /** The classloader of the last module, which releases the classloaders of other modules. */
+  private static final class ApplicationClassLoader extends NamedURLClassLoader {
+    private final List<Layer> parents;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private ApplicationClassLoader(
+        String name, URL[] urls, ClassLoader parent, List<Layer> parents) {
+      super(name, urls, parent);
+      this.parents = parents;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed.compareAndSet(false, true)) {
+        try {
+          super.close();
+        } finally {
+          parents.forEach(Layer::release);
+        }
+      }
+    }
   }
 }
@@ -11,6 +11,7 @@ import java.util.function.Supplier;
 import me.seroperson.reload.live.build.BuildLink;
 import me.seroperson.reload.live.build.BuildLogger;
 import me.seroperson.reload.live.build.ReloadableServer;
+import me.seroperson.reload.live.runner.classloader.IndexedURLClassLoader;
 import me.seroperson.reload.live.runner.classloader.NamedURLClassLoader;
 import me.seroperson.reload.live.runner.classloader.SharedClassesClassLoader;
 import me.seroperson.reload.live.settings.DevServerSettings;
@@ -82,13 +83,24 @@ public final class DevServerRunner {
               me.seroperson.reload.live.ReloadGeneration.class.getName(),
               me.seroperson.reload.live.settings.DevServerSettings.class.getName(),
               me.seroperson.reload.live.hook.Hook.class.getName(),
-              me.seroperson.reload.live.build.ReloadableServer.class.getName());
+              me.seroperson.reload.live.build.ReloadableServer.class.getName(),
+              me.seroperson.reload.live.handler.InProcessHandler.class.getName(),
+              me.seroperson.reload.live.handler.InProcessHandlers.class.getName(),
+              me.seroperson.reload.live.handler.InProcessExchange.class.getName());
       ClassLoader sharedClassesLoader =
           new SharedClassesClassLoader(rootClassLoader, sharedClasses, buildLoader);
 
+      var dependencyClasspath = params.getDependencyClasspath();
       var dependenciesClassLoader =
-          new NamedURLClassLoader(
-              "DependencyClassLoader", urls(params.getDependencyClasspath()), sharedClassesLoader);
+          params.getSettings().isDependenciesIndex()
+              ? IndexedURLClassLoader.create(
+                  "DependencyClassLoader",
+                  dependencyClasspath,
+                  urls(dependencyClasspath),
+                  sharedClassesLoader,
+                  params.getSettings().isDependenciesPreload())
+              : new NamedURLClassLoader(
+                  "DependencyClassLoader", urls(dependencyClasspath), sharedClassesLoader);
 
       reloader =
           new DevServerReloader(
@@ -96,7 +108,13 @@ public final class DevServerRunner {
               reloadCompile,
               triggerReload,
               params.getMonitoredFiles(),
-              fileWatchService);
+              fileWatchService,
+              params.getSettings().isNormalizeBytecode(),
+              params.getSettings().isLayeredClassLoaders());
+      if (dependenciesClassLoader instanceof IndexedURLClassLoader indexed) {
+        // Whatever is loaded by then is what the next start needs
+        reloader.setStartListener(indexed::saveLoadedClasses);
+      }
 
       var mainClass = dependenciesClassLoader.loadClass(params.getMainClassName());
       var constructor =
@@ -128,11 +146,19 @@ public final class DevServerRunner {
           return server.reload();
         }
 
+        @Override
+        public String report() {
+          return server.report();
+        }
+
         @Override
         public void close() {
           logger.debug("Running DevServerRunner.close()");
           server.stop();
           reloader.close();
+          if (dependenciesClassLoader instanceof IndexedURLClassLoader indexed) {
+            indexed.saveLoadedClasses();
+          }
 
           // Remove Java system properties
           params
@@ -181,10 +207,18 @@ public final class DevServerRunner {
 
       printBanner(params, logger);
       logger.info("   Use " + UNDERLINED + "Enter" + RESET + " to stop and exit");
+      if (params.getSettings().isShadow()) {
+        logger.info(
+            "   Use "
+                + UNDERLINED
+                + "s"
+                + RESET
+                + " to compare the application with its previous version");
+      }
 
       try (var terminal = TerminalBuilder.builder().streams(in, out).build()) {
         terminal.echo(false);
-        waitEOF(terminal.reader(), logger);
+        waitEOF(terminal.reader(), devServer, logger);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -194,17 +228,27 @@ public final class DevServerRunner {
     }
   }
 
-  private void waitEOF(NonBlockingReader reader, BuildLogger logger) throws IOException {
+  private void waitEOF(NonBlockingReader reader, DevServer devServer, BuildLogger logger)
+      throws IOException {
     var symbol = reader.read();
     // 4, 13: STOP on Ctrl-D or Enter
     // 11: Clear screen
     // 10: Enter
+    // 115: s, print the report
     if (symbol == 4 || symbol == 13 || symbol == 11) {
-      waitEOF(reader, logger);
+      waitEOF(reader, devServer, logger);
     } else if (symbol == 10) {
       logger.info("🛑 Stopping the application");
+    } else if (symbol == 115) {
+      var report = devServer.report();
+      if (report != null) {
+        report.lines().forEach(logger::info);
+      } else {
+        logger.info("Nothing to report yet");
+      }
+      waitEOF(reader, devServer, logger);
     } else {
-      waitEOF(reader, logger);
+      waitEOF(reader, devServer, logger);
     }
   }
 
@@ -218,6 +262,10 @@ public final class DevServerRunner {
 
     logger.info("");
     logger.info("🎉 Development Live Reload server successfully started!");
+    if (settings.isDaemon()) {
+      logger.info("ℹ️ Running without the proxy, the application is reloaded on every change");
+      return;
+    }
     logger.info(
         "🚀 Serving at:    "
             + GREEN
@@ -232,9 +280,13 @@ public final class DevServerRunner {
             + "http://"
             + settings.getHttpHost()
             + ":"
-            + settings.getHttpPort()
+            + (settings.getHttpPort() == 0 ? "<free port>" : settings.getHttpPort())
             + RESET);
-    logger.info("ℹ️ Perform a first request to start the underlying server");
+    if (settings.isEager()) {
+      logger.info("ℹ️ The underlying server is starting in the background");
+    } else {
+      logger.info("ℹ️ Perform a first request to start the underlying server");
+    }
   }
 
   /**
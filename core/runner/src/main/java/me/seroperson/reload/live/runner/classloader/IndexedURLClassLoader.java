@@ -0,0 +1,398 @@
+package me.seroperson.reload.live.runner.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+/**
+ * A {@link NamedURLClassLoader} which finds classes and resources of jars using a {@link
+ * PackageIndex}.
+ *
+ * <p>URLClassLoader checks every jar in order until it finds an entry, so a lookup of a class which
+ * doesn't exist, as frameworks do when they probe for optional dependencies, checks all of them.
+ * This one checks only the jars which contain the package, and answers immediately if there are
+ * none. Directories of the classpath aren't indexed, so they're checked on every lookup.
+ *
+ * <p>It may also remember the classes it has loaded, and load them in the background on the next
+ * start, while the application is starting.
+ */
+public class IndexedURLClassLoader extends NamedURLClassLoader {
+
+  static {
+    registerAsParallelCapable();
+  }
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  // Set on the threads which load classes in the background, so they aren't recorded
+  private static final ThreadLocal<Boolean> PRELOADER = ThreadLocal.withInitial(() -> false);
+
+  private final List<File> files;
+  private final URL[] urls;
+  private final URL[] jarUrls;
+  // Opened on the first lookup
+  private final AtomicReferenceArray<JarFile> jars;
+  private final PackageIndex index;
+  // Positions of jars on the classpath, by their positions in the index
+  private final int[] jarPositions;
+  // Positions of directories on the classpath
+  private final int[] directories;
+  private final boolean[] isDirectory;
+  // Canonical paths of directories with a trailing separator, by their positions on the classpath
+  private final String[] canonicalDirectories;
+  // Where the names of loaded classes are saved, or null if they're not recorded
+  private final Path loadedClasses;
+  // Classes the application has asked for, the preloaded ones it never needed aren't there
+  private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+  private volatile boolean preloading;
+
+  private IndexedURLClassLoader(
+      String name,
+      List<File> files,
+      URL[] urls,
+      ClassLoader parent,
+      Path loadedClasses,
+      PackageIndex index,
+      int[] jarPositions,
+      int[] directories) {
+    super(name, urls, parent);
+    this.files = files;
+    this.urls = urls;
+    this.loadedClasses = loadedClasses;
+    this.index = index;
+    this.jarPositions = jarPositions;
+    this.directories = directories;
+    this.isDirectory = new boolean[files.size()];
+    this.canonicalDirectories = new String[files.size()];
+    for (var i : directories) {
+      isDirectory[i] = true;
+      try {
+        canonicalDirectories[i] = files.get(i).getCanonicalPath() + File.separator;
+      } catch (IOException e) {
+        canonicalDirectories[i] = files.get(i).getAbsolutePath() + File.separator;
+      }
+    }
+    this.jars = new AtomicReferenceArray<>(files.size());
+    this.jarUrls = new URL[files.size()];
+    for (var i : jarPositions) {
+      try {
+        jarUrls[i] = new URL("jar:" + urls[i] + "!/");
+      } catch (MalformedURLException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+  }
+
+  /**
+   * Creates a ClassLoader over the classpath with its jars indexed.
+   *
+   * @param name the descriptive name for this ClassLoader
+   * @param classpath the classpath
+   * @param urls the URLs of the classpath entries
+   * @param parent the parent ClassLoader
+   * @param preload whether the classes loaded during the previous run are loaded in the background
+   *     and the loaded classes are remembered for the next run
+   * @return an IndexedURLClassLoader, or a NamedURLClassLoader if the jars can't be indexed
+   */
+  public static NamedURLClassLoader create(
+      String name, List<File> classpath, URL[] urls, ClassLoader parent, boolean preload) {
+    var jarFiles = new ArrayList<File>();
+    var jarPositions = new ArrayList<Integer>();
+    var directories = new ArrayList<Integer>();
+    for (int i = 0; i < classpath.size(); i++) {
+      var file = classpath.get(i);
+      if (file.isDirectory()) {
+        directories.add(i);
+      } else if (file.isFile()) {
+        jarFiles.add(file);
+        jarPositions.add(i);
+      }
+    }
+    PackageIndex index;
+    try {
+      index = PackageIndex.load(jarFiles, PackageIndex.defaultStorage(jarFiles));
+    } catch (UncheckedIOException e) {
+      return new NamedURLClassLoader(name, urls, parent);
+    }
+    var classLoader =
+        new IndexedURLClassLoader(
+            name,
+            classpath,
+            urls,
+            parent,
+            preload ? PackageIndex.storage(classpath, "classes", ".lst") : null,
+            index,
+            jarPositions.stream().mapToInt(Integer::intValue).toArray(),
+            directories.stream().mapToInt(Integer::intValue).toArray());
+    if (preload) {
+      classLoader.preload();
+    }
+    return classLoader;
+  }
+
+  /** Loads the classes loaded during the previous run in the background. */
+  private void preload() {
+    // It only helps if there is a spare processor to load classes while the application starts
+    var threads = Math.min(4, Runtime.getRuntime().availableProcessors() - 1);
+    if (threads < 1) {
+      return;
+    }
+    List<String> names;
+    try {
+      names = Files.readAllLines(loadedClasses, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      // Nothing is known yet
+      return;
+    }
+    preloading = true;
+    for (int t = 0; t < threads; t++) {
+      var offset = t;
+      var thread =
+          new Thread(
+              () -> {
+                PRELOADER.set(true);
+                for (int i = offset; i < names.size() && preloading; i += threads) {
+                  try {
+                    // Without initialization, so no code of the dependencies runs
+                    Class.forName(names.get(i), false, this);
+                  } catch (ClassNotFoundException | LinkageError e) {
+                    // Removed or broken, it's forgotten by the next run
+                  }
+                }
+              },
+              "live-reload-preload-" + t);
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.start();
+    }
+  }
+
+  /**
+   * Stops loading classes in the background, and saves the names of the classes loaded so far for
+   * the next run. It's called once the application has started and once it's stopped. The
+   * ClassLoader remains usable, as the application may still have running threads.
+   */
+  public void saveLoadedClasses() {
+    preloading = false;
+    if (loadedClasses == null || loaded.isEmpty()) {
+      return;
+    }
+    try {
+      Files.createDirectories(loadedClasses.getParent());
+      var temporary = loadedClasses.resolveSibling(loadedClasses.getFileName() + ".tmp");
+      Files.write(temporary, new ArrayList<>(loaded), StandardCharsets.UTF_8);
+      Files.move(temporary, loadedClasses, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      // It's only a cache
+    }
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    var path = name.replace('.', '/') + ".class";
+    var candidates = candidates(path);
+    for (var i : candidates) {
+      try {
+        byte[] bytes;
+        CodeSigner[] signers;
+        Manifest manifest;
+        if (isDirectory[i]) {
+          var file = files.get(i).toPath().resolve(path);
+          if (!Files.isRegularFile(file)) {
+            continue;
+          }
+          bytes = Files.readAllBytes(file);
+          signers = null;
+          manifest = null;
+        } else {
+          var jar = jar(i);
+          var entry = jar.getJarEntry(path);
+          if (entry == null) {
+            continue;
+          }
+          try (var in = jar.getInputStream(entry)) {
+            bytes = in.readAllBytes();
+          }
+          // Signers are known once the entry has been read
+          signers = entry.getCodeSigners();
+          manifest = jar.getManifest();
+        }
+        var dot = name.lastIndexOf('.');
+        if (dot > 0) {
+          ensurePackage(name.substring(0, dot), manifest, urls[i]);
+        }
+        return defineClass(name, bytes, 0, bytes.length, new CodeSource(urls[i], signers));
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+    throw new ClassNotFoundException(name);
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    var result = super.loadClass(name, resolve);
+    // Classes defined by the preloading threads are recorded only once the application needs them
+    if (loadedClasses != null && result.getClassLoader() == this && !PRELOADER.get()) {
+      loaded.add(name);
+    }
+    return result;
+  }
+
+  private void ensurePackage(String name, Manifest manifest, URL url) {
+    if (getDefinedPackage(name) != null) {
+      return;
+    }
+    try {
+      if (manifest != null) {
+        definePackage(name, manifest, url);
+      } else {
+        definePackage(name, null, null, null, null, null, null, null);
+      }
+    } catch (IllegalArgumentException e) {
+      // Defined concurrently by another thread
+    }
+  }
+
+  @Override
+  public URL findResource(String name) {
+    for (var i : candidates(name)) {
+      var url = resource(i, name);
+      if (url != null) {
+        return url;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Enumeration<URL> findResources(String name) {
+    var result = new ArrayList<URL>();
+    for (var i : candidates(name)) {
+      var url = resource(i, name);
+      if (url != null) {
+        result.add(url);
+      }
+    }
+    return Collections.enumeration(result);
+  }
+
+  /**
+   * @return the positions of the classpath entries which may contain the entry, in classpath order
+   */
+  private int[] candidates(String name) {
+    var indexed = index.get(name);
+    if (directories.length == 0) {
+      var result = new int[indexed.length];
+      for (int i = 0; i < indexed.length; i++) {
+        result[i] = jarPositions[indexed[i]];
+      }
+      return result;
+    }
+    // Both are sorted, so they're merged
+    var result = new int[indexed.length + directories.length];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < result.length; k++) {
+      if (j >= directories.length
+          || (i < indexed.length && jarPositions[indexed[i]] < directories[j])) {
+        result[k] = jarPositions[indexed[i++]];
+      } else {
+        result[k] = directories[j++];
+      }
+    }
+    return result;
+  }
+
+  private URL resource(int i, String name) {
+    try {
+      if (isDirectory[i]) {
+        var file = new File(files.get(i), name);
+        // Names like ../secret mustn't reach outside of the directory, as with URLClassLoader
+        if (!file.exists() || !file.getCanonicalPath().startsWith(canonicalDirectories[i])) {
+          return null;
+        }
+        return file.toURI().toURL();
+      }
+      return jar(i).getJarEntry(name) == null ? null : new URL(jarUrls[i], encodePath(name));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Percent-encodes the characters of an entry name which aren't allowed in a URL path, like
+   * URLClassLoader does, so names with spaces, {@code #} or {@code %} resolve to the entry itself.
+   */
+  private static String encodePath(String name) {
+    StringBuilder result = null;
+    var bytes = name.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i++) {
+      var b = bytes[i] & 0xff;
+      if (isAllowedInPath(b)) {
+        if (result != null) {
+          result.append((char) b);
+        }
+      } else {
+        if (result == null) {
+          result = new StringBuilder(bytes.length + 8);
+          result.append(new String(bytes, 0, i, StandardCharsets.UTF_8));
+        }
+        result.append('%').append(HEX[b >> 4]).append(HEX[b & 0xf]);
+      }
+    }
+    return result == null ? name : result.toString();
+  }
+
+  private static boolean isAllowedInPath(int b) {
+    return (b >= 'a' && b <= 'z')
+        || (b >= 'A' && b <= 'Z')
+        || (b >= '0' && b <= '9')
+        || "/-_.!~*'()$&+,;=:@".indexOf(b) >= 0;
+  }
+
+  private JarFile jar(int i) throws IOException {
+    var jar = jars.get(i);
+    if (jar == null) {
+      var opened = new JarFile(files.get(i), true, ZipFile.OPEN_READ, JarFile.runtimeVersion());
+      if (jars.compareAndSet(i, null, opened)) {
+        jar = opened;
+      } else {
+        // Opened concurrently by another thread
+        opened.close();
+        jar = jars.get(i);
+      }
+    }
+    return jar;
+  }
+
+  @Override
+  public void close() throws IOException {
+    preloading = false;
+    for (int i = 0; i < jars.length(); i++) {
+      var jar = jars.getAndSet(i, null);
+      if (jar != null) {
+        jar.close();
+      }
+    }
+    super.close();
+  }
+}
@@ -0,0 +1,217 @@
+package me.seroperson.reload.live.runner.classloader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.ZipFile;
+
+/**
+ * Tells which jars contain the entries of a package, so a lookup doesn't have to check every jar.
+ *
+ * <p>A package here is the directory part of an entry name, like {@code com/example} for {@code
+ * com/example/Main.class}, so the same index serves both classes and resources. Jars are indexed
+ * from their central directories in parallel, and the index is persisted to the temporary
+ * directory, so only jars which have changed since the previous run are read again.
+ */
+final class PackageIndex {
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String VERSIONS = "META-INF/versions/";
+  private static final int[] NONE = new int[0];
+
+  private final Map<String, int[]> jars;
+
+  private PackageIndex(Map<String, int[]> jars) {
+    this.jars = jars;
+  }
+
+  /**
+   * Indexes jars, reusing the persisted index of the ones which haven't changed.
+   *
+   * @param files the jars
+   * @param storage the file the index is persisted to
+   * @return the index
+   * @throws UncheckedIOException if a jar can't be read
+   */
+  static PackageIndex load(List<File> files, Path storage) {
+    var persisted = read(storage);
+    var packages = new ArrayList<Set<String>>(files.size());
+    var changed = new boolean[files.size()];
+    for (int i = 0; i < files.size(); i++) {
+      var file = files.get(i);
+      var entry = persisted.get(file.getAbsolutePath());
+      var unchanged =
+          entry != null && entry.size == file.length() && entry.modified == file.lastModified();
+      packages.add(unchanged ? entry.packages : null);
+      changed[i] = !unchanged;
+    }
+    IntStream.range(0, files.size())
+        .parallel()
+        .filter((i) -> changed[i])
+        .forEach((i) -> packages.set(i, index(files.get(i))));
+    if (IntStream.range(0, files.size()).anyMatch((i) -> changed[i])) {
+      try {
+        write(storage, files, packages);
+      } catch (IOException e) {
+        // It's only a cache
+      }
+    }
+
+    var jars = new HashMap<String, List<Integer>>();
+    for (int i = 0; i < files.size(); i++) {
+      for (var name : packages.get(i)) {
+        jars.computeIfAbsent(name, (k) -> new ArrayList<>()).add(i);
+      }
+    }
+    var result = new HashMap<String, int[]>(jars.size() * 2);
+    jars.forEach((k, v) -> result.put(k, v.stream().mapToInt(Integer::intValue).toArray()));
+    return new PackageIndex(result);
+  }
+
+  /**
+   * @param jars the jars
+   * @return the file the index of the jars is persisted to
+   */
+  static Path defaultStorage(List<File> jars) {
+    return storage(jars, "dependencies", ".idx");
+  }
+
+  /**
+   * @param files the files the cache is built from
+   * @param prefix the kind of the cache
+   * @param suffix the file extension
+   * @return the file the cache is persisted to, which is unique for the files
+   */
+  static Path storage(List<File> files, String prefix, String suffix) {
+    var key = new CRC32C();
+    for (var file : files) {
+      key.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    }
+    return Path.of(
+        System.getProperty("java.io.tmpdir"),
+        "jvm-live-reload",
+        prefix + "-" + Long.toHexString(key.getValue()) + suffix);
+  }
+
+  /**
+   * @param name the name of a class file or a resource, like {@code com/example/Main.class}
+   * @return the indices of the jars which contain entries of the package, in classpath order
+   */
+  int[] get(String name) {
+    return jars.getOrDefault(packageOf(name), NONE);
+  }
+
+  private static String packageOf(String name) {
+    var slash = name.lastIndexOf('/');
+    return slash < 0 ? "" : name.substring(0, slash);
+  }
+
+  private static Set<String> index(File file) {
+    var packages = new TreeSet<String>();
+    try (var zip = new ZipFile(file)) {
+      var entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        var name = entries.nextElement().getName();
+        add(packages, name);
+        // Classes of multi-release jars are looked up by their unversioned names
+        if (name.startsWith(VERSIONS)) {
+          var slash = name.indexOf('/', VERSIONS.length());
+          if (slash > 0) {
+            add(packages, name.substring(slash + 1));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to index " + file, e);
+    }
+    return packages;
+  }
+
+  private static void add(Set<String> packages, String name) {
+    packages.add(packageOf(name));
+    // Directories are also found by their names without the trailing slash
+    if (name.endsWith("/")) {
+      packages.add(packageOf(name.substring(0, name.length() - 1)));
+    }
+  }
+
+  private static Map<String, Persisted> read(Path storage) {
+    var result = new HashMap<String, Persisted>();
+    if (!Files.isRegularFile(storage)) {
+      return result;
+    }
+    try (var in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(storage), 64 * 1024))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return result;
+      }
+      var jarCount = in.readInt();
+      for (int i = 0; i < jarCount; i++) {
+        var path = in.readUTF();
+        var size = in.readLong();
+        var modified = in.readLong();
+        var packageCount = in.readInt();
+        var packages = new TreeSet<String>();
+        for (int j = 0; j < packageCount; j++) {
+          packages.add(in.readUTF());
+        }
+        result.put(path, new Persisted(size, modified, packages));
+      }
+    } catch (IOException | RuntimeException e) {
+      // A broken index is rebuilt from scratch
+      result.clear();
+    }
+    return result;
+  }
+
+  private static void write(Path storage, List<File> files, List<Set<String>> packages)
+      throws IOException {
+    Files.createDirectories(storage.getParent());
+    var temporary = storage.resolveSibling(storage.getFileName() + ".tmp");
+    try (var out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(files.size());
+      for (int i = 0; i < files.size(); i++) {
+        var file = files.get(i);
+        out.writeUTF(file.getAbsolutePath());
+        out.writeLong(file.length());
+        out.writeLong(file.lastModified());
+        out.writeInt(packages.get(i).size());
+        for (var name : packages.get(i)) {
+          out.writeUTF(name);
+        }
+      }
+    }
+    Files.move(temporary, storage, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static final class Persisted {
+    private final long size;
+    private final long modified;
+    private final Set<String> packages;
+
+    private Persisted(long size, long modified, Set<String> packages) {
+      this.size = size;
+      this.modified = modified;
+      this.packages = packages;
+    }
+  }
+}
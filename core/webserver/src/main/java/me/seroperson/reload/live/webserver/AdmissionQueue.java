@@ -0,0 +1,60 @@
+package me.seroperson.reload.live.webserver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the amount of requests which are held by the proxy while the application is reloading.
+ *
+ * <p>The capacity is limited both by the number of requests and by the total size of their bodies
+ * (as declared by {@code Content-Length}), as bodies stay in socket buffers while requests wait.
+ */
+final class AdmissionQueue {
+
+  private final int maxRequests;
+  private final long maxBytes;
+
+  private final AtomicInteger requests = new AtomicInteger(0);
+  private final AtomicLong bytes = new AtomicLong(0L);
+
+  /**
+   * Creates a queue.
+   *
+   * @param maxRequests the maximum number of held requests
+   * @param maxBytes the maximum total size of held request bodies
+   */
+  AdmissionQueue(int maxRequests, long maxBytes) {
+    this.maxRequests = maxRequests;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Tries to take a place in the queue.
+   *
+   * @param contentLength the size of a request body, negative if unknown
+   * @return true if the request was admitted and {@link #release(long)} must be called later
+   */
+  boolean tryAcquire(long contentLength) {
+    var size = Math.max(contentLength, 0L);
+    if (requests.incrementAndGet() > maxRequests) {
+      requests.decrementAndGet();
+      return false;
+    }
+    if (size > 0 && bytes.addAndGet(size) > maxBytes) {
+      bytes.addAndGet(-size);
+      requests.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Frees a place taken by {@link #tryAcquire(long)}.
+   *
+   * @param contentLength the same value which was passed to {@link #tryAcquire(long)}
+   */
+  void release(long contentLength) {
+    bytes.addAndGet(-Math.max(contentLength, 0L));
+    requests.decrementAndGet();
+  }
+}
@@ -0,0 +1,83 @@
+package me.seroperson.reload.live.webserver;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import me.seroperson.reload.live.ReloadGeneration;
+import me.seroperson.reload.live.settings.DevServerSettings;
+
+/**
+ * A running instance of the application, started from a specific {@link ReloadGeneration}.
+ *
+ * <p>Usually there is only one instance, but in blue/green mode the old one keeps running on its
+ * own port until the new one is ready and the old one has finished its requests.
+ */
+final class ApplicationInstance {
+
+  private final ReloadGeneration generation;
+  private final DevServerSettings settings;
+  private final URI uri;
+  private final AtomicInteger activeRequests = new AtomicInteger(0);
+  private volatile Thread thread;
+
+  /**
+   * Creates an instance.
+   *
+   * @param generation the reloaded code
+   * @param settings the settings with the port this instance listens on
+   */
+  ApplicationInstance(ReloadGeneration generation, DevServerSettings settings) {
+    this.generation = generation;
+    this.settings = settings;
+    this.uri = URI.create("http://" + settings.getHttpHost() + ":" + settings.getHttpPort());
+  }
+
+  ReloadGeneration getGeneration() {
+    return generation;
+  }
+
+  ClassLoader getClassLoader() {
+    return generation.getReloadedClassLoader();
+  }
+
+  DevServerSettings getSettings() {
+    return settings;
+  }
+
+  int getPort() {
+    return settings.getHttpPort();
+  }
+
+  URI getUri() {
+    return uri;
+  }
+
+  Thread getThread() {
+    return thread;
+  }
+
+  void setThread(Thread thread) {
+    this.thread = thread;
+  }
+
+  /** Registers a request which is being proxied to this instance. */
+  void requestStarted() {
+    activeRequests.incrementAndGet();
+  }
+
+  /** Unregisters a request previously registered using {@link #requestStarted()}. */
+  void requestFinished() {
+    activeRequests.decrementAndGet();
+  }
+
+  /**
+   * @return the number of requests which are being proxied to this instance
+   */
+  int getActiveRequests() {
+    return activeRequests.get();
+  }
+
+  @Override
+  public String toString() {
+    return "iteration(" + generation.getIteration() + ")@" + uri;
+  }
+}
@@ -0,0 +1,320 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.client.ClientCallback;
+import io.undertow.client.ClientConnection;
+import io.undertow.client.UndertowClient;
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import me.seroperson.reload.live.build.BuildLogger;
+import org.xnio.IoUtils;
+import org.xnio.OptionMap;
+import org.xnio.Options;
+import org.xnio.XnioIoThread;
+import org.xnio.XnioWorker;
+import org.xnio.http.UpgradeFailedException;
+
+/**
+ * A pool of connections to the application, shared by all the frontend connections.
+ *
+ * <p>Connections are bound to an IO thread, so each IO thread has its own set of idle connections,
+ * which is only accessed from that thread. Only idle connections are limited: a request which finds
+ * none opens a new connection, as long-lived responses like event streams would otherwise hold the
+ * connections other requests wait for. Every connection is tagged with the generation it was opened
+ * to, so connections to an old instance are never reused after a reload.
+ *
+ * <p>In HTTP/2 modes all the requests of an IO thread are multiplexed over a single connection if
+ * the application supports it, otherwise it works the same way as in HTTP/1.1 mode.
+ */
+final class BackendConnectionPool {
+
+  // Otherwise Nagle's algorithm may hold back small writes, like a body which follows its headers
+  private static final OptionMap OPTIONS = OptionMap.create(Options.TCP_NODELAY, true);
+
+  private final UndertowClient client = UndertowClient.getInstance();
+  private final BuildLogger logger;
+  private final ByteBufferPool bufferPool;
+  private final int maxIdle;
+  private final long idleTimeoutMillis;
+  private final Protocol protocol;
+
+  private final Map<XnioIoThread, ThreadConnections> threads = new ConcurrentHashMap<>();
+  // All open connections, including the ones which are currently in use
+  private final Set<PooledConnection> connections = ConcurrentHashMap.newKeySet();
+  private volatile int minGeneration = Integer.MIN_VALUE;
+  // The latest generation which has refused to upgrade to h2c
+  private volatile int http1Generation = Integer.MIN_VALUE;
+
+  /**
+   * Creates a pool.
+   *
+   * @param logger the logger
+   * @param bufferPool the buffer pool shared with the proxy server
+   * @param maxIdle the maximum number of idle connections, split between IO threads. Connections in
+   *     use aren't limited
+   * @param idleTimeoutMillis the time after which an idle connection is closed
+   * @param protocol the protocol to talk to the application
+   */
+  BackendConnectionPool(
+      BuildLogger logger,
+      ByteBufferPool bufferPool,
+      int maxIdle,
+      long idleTimeoutMillis,
+      Protocol protocol) {
+    this.logger = logger;
+    this.bufferPool = bufferPool;
+    this.maxIdle = maxIdle;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.protocol = protocol;
+  }
+
+  /**
+   * Provides a connection to the given generation. Must be called from the IO thread.
+   *
+   * @param thread the IO thread of the frontend connection
+   * @param uri the address of the application
+   * @param generation the generation the connection must belong to
+   * @param callback the callback which receives the connection on the IO thread
+   */
+  void acquire(
+      XnioIoThread thread, URI uri, int generation, ClientCallback<PooledConnection> callback) {
+    var local = local(thread);
+    var multiplexed = local.multiplexed;
+    if (multiplexed != null) {
+      if (multiplexed.isUsable(generation)) {
+        callback.completed(multiplexed);
+        return;
+      }
+      // Not closing it, as long-lived streams may still use it. It's closed once the instance stops
+      local.multiplexed = null;
+    }
+    PooledConnection idle;
+    while ((idle = local.idle.pollFirst()) != null) {
+      if (idle.isUsable(generation)) {
+        callback.completed(idle);
+        return;
+      }
+      close(idle);
+    }
+    connect(thread, uri, generation, callback);
+  }
+
+  /**
+   * Returns a connection to the pool once the exchange which used it is complete. Multiplexed
+   * connections are never taken from the pool, so there is nothing to do for them.
+   *
+   * @param connection the connection
+   * @param exchange the completed exchange
+   */
+  void release(PooledConnection connection, HttpServerExchange exchange) {
+    if (connection.multiplexed) {
+      return;
+    }
+    // A connection with an unfinished or upgraded exchange can't serve other requests
+    if (exchange.isUpgrade() || !exchange.isRequestComplete() || !exchange.isResponseComplete()) {
+      close(connection);
+      return;
+    }
+    release(connection);
+  }
+
+  /**
+   * Opens connections to a freshly started instance in background, so the first requests don't have
+   * to wait for a connect.
+   *
+   * @param worker the worker of the proxy server
+   * @param uri the address of the application
+   * @param generation the generation of the instance
+   * @param count the number of connections to open
+   */
+  void prewarm(XnioWorker worker, URI uri, int generation, int count) {
+    for (int i = 0; i < count; i++) {
+      var thread = worker.getIoThread(i);
+      thread.execute(
+          () ->
+              connect(
+                  thread,
+                  uri,
+                  generation,
+                  new ClientCallback<>() {
+                    @Override
+                    public void completed(PooledConnection connection) {
+                      release(connection);
+                    }
+
+                    @Override
+                    public void failed(IOException e) {
+                      logger.debug("Unable to pre-open connection: " + e.getMessage());
+                    }
+                  }));
+    }
+  }
+
+  /**
+   * Closes connections which were opened to generations older than the given one.
+   *
+   * @param iteration the iteration of the oldest generation which is still alive
+   */
+  void invalidateBefore(int iteration) {
+    minGeneration = Math.max(minGeneration, iteration);
+    for (var connection : connections) {
+      if (connection.generation < iteration) {
+        // Closing on its own thread, as the connection may be in use there
+        connection.connection.getIoThread().execute(() -> close(connection));
+      }
+    }
+  }
+
+  private void release(PooledConnection connection) {
+    var thread = connection.connection.getIoThread();
+    if (Thread.currentThread() != thread) {
+      thread.execute(() -> release(connection));
+      return;
+    }
+    if (connection.multiplexed) {
+      return;
+    }
+    var local = local(thread);
+    if (!connection.connection.isOpen()
+        || connection.generation < minGeneration
+        || local.idle.size() >= maxIdlePerThread(thread.getWorker())) {
+      close(connection);
+      return;
+    }
+    connection.idleSince = System.currentTimeMillis();
+    local.idle.addFirst(connection);
+    scheduleEviction(thread, local);
+  }
+
+  private void connect(
+      XnioIoThread thread, URI uri, int generation, ClientCallback<PooledConnection> callback) {
+    var useH2c = protocol == Protocol.H2C && generation > http1Generation;
+    client.connect(
+        new ClientCallback<>() {
+          @Override
+          public void completed(ClientConnection result) {
+            var connection = new PooledConnection(result, generation);
+            connections.add(connection);
+            result.addCloseListener(
+                (v) -> {
+                  connections.remove(connection);
+                  logger.debug("Closing proxy connection");
+                });
+            if (result.isMultiplexingSupported()) {
+              connection.multiplexed = true;
+              var local = local(thread);
+              if (local.multiplexed == null || !local.multiplexed.isUsable(generation)) {
+                local.multiplexed = connection;
+              }
+            }
+            callback.completed(connection);
+          }
+
+          @Override
+          public void failed(IOException e) {
+            if (useH2c && e instanceof UpgradeFailedException) {
+              // The application doesn't support HTTP/2, so not trying again for this generation
+              logger.debug("h2c upgrade failed, falling back to HTTP/1.1: " + e.getMessage());
+              http1Generation = Math.max(http1Generation, generation);
+              connect(thread, uri, generation, callback);
+            } else {
+              callback.failed(e);
+            }
+          }
+        },
+        useH2c || protocol == Protocol.H2C_PRIOR ? withScheme(uri, protocol.scheme) : uri,
+        thread,
+        bufferPool,
+        OPTIONS);
+  }
+
+  private void scheduleEviction(XnioIoThread thread, ThreadConnections local) {
+    if (local.evictionScheduled) {
+      return;
+    }
+    local.evictionScheduled = true;
+    thread.executeAfter(
+        () -> {
+          local.evictionScheduled = false;
+          var deadline = System.currentTimeMillis() - idleTimeoutMillis;
+          // The oldest connections are at the tail
+          while (!local.idle.isEmpty() && local.idle.peekLast().idleSince <= deadline) {
+            close(local.idle.pollLast());
+          }
+          if (!local.idle.isEmpty()) {
+            scheduleEviction(thread, local);
+          }
+        },
+        idleTimeoutMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private int maxIdlePerThread(XnioWorker worker) {
+    var threadCount = worker.getIoThreadCount();
+    return Math.max(1, (maxIdle + threadCount - 1) / threadCount);
+  }
+
+  private ThreadConnections local(XnioIoThread thread) {
+    return threads.computeIfAbsent(thread, (v) -> new ThreadConnections());
+  }
+
+  private void close(PooledConnection connection) {
+    connections.remove(connection);
+    IoUtils.safeClose(connection.connection);
+  }
+
+  private static URI withScheme(URI uri, String scheme) {
+    return URI.create(scheme + uri.toString().substring(uri.getScheme().length()));
+  }
+
+  /** The protocol which is used to talk to the application. */
+  enum Protocol {
+    /** Plain HTTP/1.1. */
+    HTTP1("http"),
+    /** HTTP/2 cleartext using the upgrade, falls back to HTTP/1.1 if the upgrade is refused. */
+    H2C("h2c"),
+    /** HTTP/2 cleartext with prior knowledge, used for gRPC. */
+    H2C_PRIOR("h2c-prior");
+
+    private final String scheme;
+
+    Protocol(String scheme) {
+      this.scheme = scheme;
+    }
+  }
+
+  /** Connections of a single IO thread. Only accessed from that thread. */
+  private static final class ThreadConnections {
+    // Most recently used connections are at the head
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private PooledConnection multiplexed;
+    private boolean evictionScheduled;
+  }
+
+  /** A connection to the application together with the generation it was opened to. */
+  static final class PooledConnection {
+    private final ClientConnection connection;
+    private final int generation;
+    private boolean multiplexed;
+    private long idleSince;
+
+    private PooledConnection(ClientConnection connection, int generation) {
+      this.connection = connection;
+      this.generation = generation;
+    }
+
+    ClientConnection getConnection() {
+      return connection;
+    }
+
+    private boolean isUsable(int generation) {
+      return connection.isOpen() && this.generation == generation;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.client.ClientCallback;
+import io.undertow.client.ClientConnection;
+import io.undertow.client.ClientExchange;
+import io.undertow.client.ClientRequest;
+import io.undertow.client.ClientStatistics;
+import io.undertow.connector.ByteBufferPool;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.xnio.ChannelListener;
+import org.xnio.Option;
+import org.xnio.StreamConnection;
+import org.xnio.XnioIoThread;
+import org.xnio.XnioWorker;
+import org.xnio.channels.StreamSinkChannel;
+
+/**
+ * A connection which sends a request body kept in memory before passing the exchange to the proxy.
+ *
+ * <p>The proxy streams the body from the request channel, which can only be read once. When the
+ * body was read in advance by {@link ReplayableRequestHandler}, the request is complete from the
+ * proxy point of view, so this connection writes the body on its behalf. That's what allows sending
+ * the same request again after a failure.
+ */
+final class BufferedBodyConnection implements ClientConnection {
+
+  private final ClientConnection delegate;
+  private final byte[] body;
+
+  BufferedBodyConnection(ClientConnection delegate, byte[] body) {
+    this.delegate = delegate;
+    this.body = body;
+  }
+
+  @Override
+  public void sendRequest(ClientRequest request, ClientCallback<ClientExchange> clientCallback) {
+    delegate.sendRequest(
+        request,
+        new ClientCallback<>() {
+          @Override
+          public void completed(ClientExchange exchange) {
+            var buffer = ByteBuffer.wrap(body);
+            ChannelListener<StreamSinkChannel> writer =
+                new ChannelListener<>() {
+                  @Override
+                  public void handleEvent(StreamSinkChannel channel) {
+                    try {
+                      while (buffer.hasRemaining()) {
+                        if (channel.write(buffer) == 0) {
+                          channel.getWriteSetter().set(this);
+                          channel.resumeWrites();
+                          return;
+                        }
+                      }
+                    } catch (IOException e) {
+                      clientCallback.failed(e);
+                      return;
+                    }
+                    channel.suspendWrites();
+                    channel.getWriteSetter().set(null);
+                    clientCallback.completed(exchange);
+                  }
+                };
+            writer.handleEvent(exchange.getRequestChannel());
+          }
+
+          @Override
+          public void failed(IOException e) {
+            clientCallback.failed(e);
+          }
+        });
+  }
+
+  @Override
+  public StreamConnection performUpgrade() throws IOException {
+    return delegate.performUpgrade();
+  }
+
+  @Override
+  public ByteBufferPool getBufferPool() {
+    return delegate.getBufferPool();
+  }
+
+  @Override
+  public SocketAddress getPeerAddress() {
+    return delegate.getPeerAddress();
+  }
+
+  @Override
+  public <A extends SocketAddress> A getPeerAddress(Class<A> type) {
+    return delegate.getPeerAddress(type);
+  }
+
+  @Override
+  public ChannelListener.Setter<? extends ClientConnection> getCloseSetter() {
+    return delegate.getCloseSetter();
+  }
+
+  @Override
+  public SocketAddress getLocalAddress() {
+    return delegate.getLocalAddress();
+  }
+
+  @Override
+  public <A extends SocketAddress> A getLocalAddress(Class<A> type) {
+    return delegate.getLocalAddress(type);
+  }
+
+  @Override
+  public XnioWorker getWorker() {
+    return delegate.getWorker();
+  }
+
+  @Override
+  public XnioIoThread getIoThread() {
+    return delegate.getIoThread();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return delegate.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  @Override
+  public boolean supportsOption(Option<?> option) {
+    return delegate.supportsOption(option);
+  }
+
+  @Override
+  public <T> T getOption(Option<T> option) throws IOException {
+    return delegate.getOption(option);
+  }
+
+  @Override
+  public <T> T setOption(Option<T> option, T value) throws IOException {
+    return delegate.setOption(option, value);
+  }
+
+  @Override
+  public boolean isUpgraded() {
+    return delegate.isUpgraded();
+  }
+
+  @Override
+  public boolean isPushSupported() {
+    return delegate.isPushSupported();
+  }
+
+  @Override
+  public boolean isMultiplexingSupported() {
+    return delegate.isMultiplexingSupported();
+  }
+
+  @Override
+  public ClientStatistics getStatistics() {
+    return delegate.getStatistics();
+  }
+
+  @Override
+  public boolean isUpgradeSupported() {
+    return delegate.isUpgradeSupported();
+  }
+
+  @Override
+  public void addCloseListener(ChannelListener<ClientConnection> listener) {
+    delegate.addCloseListener(listener);
+  }
+
+  @Override
+  public boolean isPingSupported() {
+    return delegate.isPingSupported();
+  }
+
+  @Override
+  public void sendPing(PingListener listener, long timeout, TimeUnit timeUnit) {
+    delegate.sendPing(listener, timeout, timeUnit);
+  }
+}
@@ -0,0 +1,72 @@
+package me.seroperson.reload.live.webserver;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+
+/**
+ * Compressed response bodies kept in memory until the application is reloaded, so responses which
+ * haven't changed aren't compressed again.
+ *
+ * <p>Bodies are keyed by the URL, the encoding and the validator ({@code ETag} or {@code
+ * Last-Modified}) of the uncompressed response. The total size is bounded, least recently used
+ * bodies are evicted first.
+ */
+final class CompressedBodyCache {
+
+  private final long maxBytes;
+
+  // Access-ordered, so the eldest entry is the least recently used one
+  private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxBytes the maximum total size of compressed bodies
+   */
+  CompressedBodyCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the maximum size of a single body, so one response can't evict most of the cache
+   */
+  long getMaxEntryBytes() {
+    return Math.max(maxBytes / 4L, 0L);
+  }
+
+  /** Drops all the bodies, as a new generation may respond differently. */
+  synchronized void clear() {
+    entries.clear();
+    bytes = 0L;
+  }
+
+  /**
+   * @param key the key
+   * @return a view of the compressed body, or null if there is none
+   */
+  synchronized ByteBuffer get(String key) {
+    var body = entries.get(key);
+    return body == null ? null : body.duplicate();
+  }
+
+  /**
+   * @param key the key
+   * @param body the read-only compressed body
+   */
+  synchronized void put(String key, ByteBuffer body) {
+    if (body.remaining() > getMaxEntryBytes()) {
+      return;
+    }
+    var previous = entries.put(key, body);
+    if (previous != null) {
+      bytes -= previous.capacity();
+    }
+    bytes += body.capacity();
+    var iterator = entries.values().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      bytes -= iterator.next().capacity();
+      iterator.remove();
+    }
+  }
+}
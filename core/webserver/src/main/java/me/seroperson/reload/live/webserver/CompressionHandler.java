@@ -0,0 +1,339 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.AllowedContentEncodings;
+import io.undertow.server.handlers.encoding.ContentEncodingProvider;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.Map;
+import me.seroperson.reload.live.build.BuildLogger;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.Conduits;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * Compresses responses which the application sends uncompressed.
+ *
+ * <p>The encoding is negotiated with {@code Accept-Encoding}: gzip and deflate are built in, other
+ * encodings can be plugged in as {@link ContentEncodingProvider} implementations. Compressed bodies
+ * of responses with a validator are kept in {@link CompressedBodyCache}, so the same response isn't
+ * compressed again until the application is reloaded.
+ */
+final class CompressionHandler implements HttpHandler {
+
+  // Compressing tiny responses isn't worth it
+  private static final long MIN_COMPRESSED_LENGTH = 1024L;
+  private static final int BUILT_IN_PRIORITY = 50;
+  private static final int PLUGGED_PRIORITY = 100;
+
+  private final ContentEncodingRepository repository = new ContentEncodingRepository();
+  private final CompressedBodyCache cache;
+  private final CompressionStatistics statistics;
+  private final HttpHandler next;
+
+  /**
+   * Creates a handler.
+   *
+   * @param logger the logger
+   * @param providers the map from encoding names to additional provider class names
+   * @param cache the cache of compressed bodies
+   * @param statistics the statistics to report the work to
+   * @param next the next handler
+   */
+  CompressionHandler(
+      BuildLogger logger,
+      Map<String, String> providers,
+      CompressedBodyCache cache,
+      CompressionStatistics statistics,
+      HttpHandler next) {
+    this.cache = cache;
+    this.statistics = statistics;
+    this.next = next;
+    Predicate compressible = CompressionHandler::isCompressible;
+    repository
+        .addEncodingHandler("gzip", new GzipEncodingProvider(), BUILT_IN_PRIORITY, compressible)
+        .addEncodingHandler(
+            "deflate", new DeflateEncodingProvider(), BUILT_IN_PRIORITY - 1, compressible);
+    var priority = PLUGGED_PRIORITY;
+    for (var entry : providers.entrySet()) {
+      try {
+        var provider =
+            (ContentEncodingProvider)
+                Class.forName(entry.getValue()).getDeclaredConstructor().newInstance();
+        repository.addEncodingHandler(entry.getKey(), provider, priority--, compressible);
+      } catch (ClassNotFoundException
+          | ClassCastException
+          | InstantiationException
+          | InvocationTargetException
+          | IllegalAccessException
+          | NoSuchMethodException e) {
+        logger.error("Unable to initialize content encoding: " + entry.getKey(), e);
+      }
+    }
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    var encodings = repository.getContentEncodings(exchange);
+    // gRPC frames its messages and compresses them on its own
+    if (encodings != null
+        && !encodings.isNoEncodingsAllowed()
+        && exchange.isResponseChannelAvailable()
+        && !ReloadableProxyClient.isGrpc(exchange)) {
+      exchange.addResponseWrapper((factory, wrapped) -> wrap(factory, wrapped, encodings));
+    }
+    next.handleRequest(exchange);
+  }
+
+  private StreamSinkConduit wrap(
+      ConduitFactory<StreamSinkConduit> factory,
+      HttpServerExchange exchange,
+      AllowedContentEncodings encodings) {
+    var headers = exchange.getResponseHeaders();
+    if (headers.contains(Headers.CONTENT_ENCODING)) {
+      // Already compressed by the application
+      return factory.create();
+    }
+    var key = cacheKey(exchange, encodings);
+    if (key != null) {
+      var cached = cache.get(key);
+      if (cached != null) {
+        statistics.reused();
+        headers.put(Headers.CONTENT_ENCODING, encodings.getCurrentContentEncoding());
+        headers.remove(Headers.TRANSFER_ENCODING);
+        headers.put(Headers.CONTENT_LENGTH, cached.remaining());
+        headers.add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        return new CachedBodyConduit(factory.create(), cached);
+      }
+    }
+    var capture = new ResponseCaptureConduit[1];
+    var limit = key == null ? 0L : cache.getMaxEntryBytes();
+    var encoded =
+        encodings.wrap(
+            () -> {
+              capture[0] = new ResponseCaptureConduit(factory.create(), -1L, limit);
+              return capture[0];
+            },
+            exchange);
+    if (!headers.contains(Headers.CONTENT_ENCODING)) {
+      return encoded;
+    }
+    headers.add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+    var timed = new TimedConduit(encoded);
+    exchange.addExchangeCompleteListener(
+        (completed, nextListener) -> {
+          if (capture[0] != null) {
+            statistics.compressed(
+                timed.uncompressedBytes, capture[0].getWrittenBytes(), timed.nanos);
+            var body = capture[0].getBody();
+            if (key != null && body != null && completed.isResponseComplete()) {
+              cache.put(key, body);
+            }
+          }
+          nextListener.proceed();
+        });
+    return timed;
+  }
+
+  /**
+   * @return the key of the compressed body, or null if the response can't be reused
+   */
+  private static String cacheKey(HttpServerExchange exchange, AllowedContentEncodings encodings) {
+    if (!exchange.getRequestMethod().equals(Methods.GET)
+        || exchange.getStatusCode() != StatusCodes.OK
+        || encodings.getEncoding() == null) {
+      return null;
+    }
+    var headers = exchange.getResponseHeaders();
+    var validator = headers.getFirst(Headers.ETAG);
+    if (validator == null) {
+      validator = headers.getFirst(Headers.LAST_MODIFIED);
+    }
+    if (validator == null) {
+      return null;
+    }
+    return encodings.getCurrentContentEncoding()
+        + " "
+        + exchange.getRequestURI()
+        + "?"
+        + exchange.getQueryString()
+        + " "
+        + validator;
+  }
+
+  private static boolean isCompressible(HttpServerExchange exchange) {
+    var length = exchange.getResponseContentLength();
+    if (length >= 0L && length < MIN_COMPRESSED_LENGTH) {
+      return false;
+    }
+    var headers = exchange.getResponseHeaders();
+    var contentType = headers.getFirst(Headers.CONTENT_TYPE);
+    if (contentType == null || headers.contains(Headers.CONTENT_ENCODING)) {
+      return false;
+    }
+    contentType = contentType.toLowerCase(Locale.ROOT);
+    // Streams must reach the client as they're written, rather than when the compressor flushes
+    if (contentType.startsWith("application/grpc") || contentType.startsWith("text/event-stream")) {
+      return false;
+    }
+    return contentType.startsWith("text/")
+        || contentType.contains("json")
+        || contentType.contains("javascript")
+        || contentType.contains("xml")
+        || contentType.contains("svg")
+        || contentType.contains("wasm");
+  }
+
+  /** Measures the time spent in the compressor, which gets the uncompressed body. */
+  private static final class TimedConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
+    private long uncompressedBytes;
+    private long nanos;
+
+    private TimedConduit(StreamSinkConduit next) {
+      super(next);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      var started = System.nanoTime();
+      var written = next.write(src);
+      nanos += System.nanoTime() - started;
+      uncompressedBytes += written;
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+      var started = System.nanoTime();
+      var written = next.write(srcs, offs, len);
+      nanos += System.nanoTime() - started;
+      uncompressedBytes += written;
+      return written;
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+      return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+      return Conduits.writeFinalBasic(this, srcs, offs, len);
+    }
+
+    @Override
+    public long transferFrom(FileChannel src, long position, long count) throws IOException {
+      return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public long transferFrom(StreamSourceChannel source, long count, ByteBuffer throughBuffer)
+        throws IOException {
+      return Conduits.transfer(source, count, throughBuffer, this);
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+      // The compressor writes out what's left when flushed after termination
+      var started = System.nanoTime();
+      var flushed = next.flush();
+      nanos += System.nanoTime() - started;
+      return flushed;
+    }
+  }
+
+  /**
+   * Sends a previously compressed body instead of compressing the one sent by the application,
+   * which is discarded.
+   */
+  private static final class CachedBodyConduit
+      extends AbstractStreamSinkConduit<StreamSinkConduit> {
+    private final ByteBuffer body;
+    private boolean terminated;
+    private boolean nextTerminated;
+
+    private CachedBodyConduit(StreamSinkConduit next, ByteBuffer body) {
+      super(next);
+      this.body = body;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      var remaining = src.remaining();
+      src.position(src.limit());
+      return remaining;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) {
+      var written = 0L;
+      for (int i = offs; i < offs + len; i++) {
+        written += write(srcs[i]);
+      }
+      return written;
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+      return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+      return Conduits.writeFinalBasic(this, srcs, offs, len);
+    }
+
+    @Override
+    public long transferFrom(FileChannel src, long position, long count) throws IOException {
+      return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public long transferFrom(StreamSourceChannel source, long count, ByteBuffer throughBuffer)
+        throws IOException {
+      return Conduits.transfer(source, count, throughBuffer, this);
+    }
+
+    @Override
+    public void terminateWrites() {
+      // The cached body is written on flush, as the next conduit may not accept it at once
+      terminated = true;
+    }
+
+    @Override
+    public boolean isWriteShutdown() {
+      return terminated;
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+      if (!terminated) {
+        return next.flush();
+      }
+      while (body.hasRemaining()) {
+        if (next.write(body) == 0) {
+          return false;
+        }
+      }
+      if (!nextTerminated) {
+        nextTerminated = true;
+        next.terminateWrites();
+      }
+      return next.flush();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package me.seroperson.reload.live.webserver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counts the work done by the proxy to compress responses. */
+final class CompressionStatistics {
+
+  private final LongAdder responses = new LongAdder();
+  private final LongAdder cachedResponses = new LongAdder();
+  private final LongAdder uncompressedBytes = new LongAdder();
+  private final LongAdder compressedBytes = new LongAdder();
+  private final LongAdder compressionNanos = new LongAdder();
+
+  /**
+   * Records a compressed response.
+   *
+   * @param uncompressed the size of the response body before compression
+   * @param compressed the size of the compressed body
+   * @param nanos the time spent in the compressor
+   */
+  void compressed(long uncompressed, long compressed, long nanos) {
+    responses.increment();
+    uncompressedBytes.add(uncompressed);
+    compressedBytes.add(compressed);
+    compressionNanos.add(nanos);
+  }
+
+  /** Records a response which has reused a previously compressed body. */
+  void reused() {
+    cachedResponses.increment();
+  }
+
+  /**
+   * Resets the counters.
+   *
+   * @return the summary of the work done since the previous call, or null if there was none
+   */
+  String reset() {
+    var count = responses.sumThenReset();
+    var reused = cachedResponses.sumThenReset();
+    var uncompressed = uncompressedBytes.sumThenReset();
+    var compressed = compressedBytes.sumThenReset();
+    var nanos = compressionNanos.sumThenReset();
+    if (count == 0L && reused == 0L) {
+      return null;
+    }
+    return String.format(
+        "Compressed %d responses (%d to %d bytes) in %.1fms, reused %d compressed bodies",
+        count, uncompressed, compressed, nanos / 1_000_000.0, reused);
+  }
+}
@@ -1,28 +1,58 @@
 package me.seroperson.reload.live.webserver;
 
 import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.server.DefaultByteBufferPool;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.PredicateHandler;
 import io.undertow.server.handlers.ResponseCodeHandler;
 import io.undertow.server.handlers.proxy.ProxyHandler;
 import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.net.URI;
 import java.security.AccessControlContext;
 import java.security.AccessController;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
 import me.seroperson.reload.live.ReloadGeneration;
 import me.seroperson.reload.live.build.BuildLink;
 import me.seroperson.reload.live.build.BuildLogger;
 import me.seroperson.reload.live.build.ReloadableServer;
+import me.seroperson.reload.live.handler.InProcessHandlers;
 import me.seroperson.reload.live.hook.Hook;
 import me.seroperson.reload.live.settings.DevServerSettings;
 
 public class DevServerStart implements ReloadableServer {
 
+  // Null in daemon mode, as there is nothing to proxy
   private final Undertow server;
-  private Thread appThread;
+  private final ReloadableProxyClient proxyClient;
+  private final BackendConnectionPool connectionPool;
+  private final BackendConnectionPool grpcConnectionPool;
 
-  private ClassLoader classLoader;
+  // The instance which receives requests
+  private volatile ApplicationInstance current;
+  // The previous instance which receives mirrored requests, null unless shadow traffic is enabled
+  private volatile ApplicationInstance shadow;
   private final String mainClass;
 
   private final List<Hook> startupHooks;
@@ -32,8 +62,44 @@ public class DevServerStart implements ReloadableServer {
   private final BuildLogger logger;
   private final BuildLink buildLink;
 
+  // Reloads are performed here, so IO threads never block on compilation and hooks
+  private final ExecutorService reloadExecutor =
+      Executors.newSingleThreadExecutor((r) -> new Thread(r, "live-reload"));
+  // The reload which is currently in progress, requests are waiting for its completion
+  private final AtomicReference<CompletableFuture<Boolean>> inFlightReload =
+      new AtomicReference<>();
+  private volatile boolean lastReloadFailed = false;
+  private final ReloadStatistics reloadStatistics = new ReloadStatistics();
+  private final ReadinessGate readinessGate = new ReadinessGate();
+  private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+  // Null if the response cache is disabled or in daemon mode
+  private final ResponseCache responseCache;
+  // Null if compression is disabled or in daemon mode
+  private final CompressedBodyCache compressedBodyCache;
+  // Null if no static directories are configured or in daemon mode
+  private final StaticResourceHandler staticResources;
+  // Null if shadow traffic is disabled or in daemon mode
+  private final ShadowTrafficHandler shadowTraffic;
+  // Old instances are drained and stopped here in blue/green mode
+  private final ExecutorService shutdownExecutor =
+      Executors.newSingleThreadExecutor((r) -> new Thread(r, "live-reload-shutdown"));
+  // Ports of old instances which are still stopping in blue/green mode
+  private final Map<Integer, CompletableFuture<Void>> stoppingPorts = new ConcurrentHashMap<>();
+  // Blue/green reloading switches the proxy between instances, so it's disabled in daemon mode
+  private final boolean blueGreen;
+  // Checks for changes and starts reloads in eager mode, null otherwise
+  private final ScheduledExecutorService eagerExecutor;
+  // Bumped on every change reported by the build. Starts at 1, so the application is started
+  // right away in eager mode
+  private final AtomicLong changes = new AtomicLong(1L);
+  private volatile long lastChangeMillis = 0L;
+  // The value of changes which was observed by the last eager reload
+  private long eagerChanges = 0L;
+
   private static final AccessControlContext accessControlContext = AccessController.getContext();
 
+  private static final int BUFFER_SIZE = 16 * 1024;
+
   public DevServerStart(
       DevServerSettings settings,
       BuildLink buildLink,
@@ -72,21 +138,200 @@ public class DevServerStart implements ReloadableServer {
       silenceJboss();
     }
 
-    var proxyClientProvider =
-        new ReloadableProxyClient(
-            logger, URI.create("http://" + settings.getHttpHost() + ":" + settings.getHttpPort()));
-    var proxyHandler =
-        new ProxyHandler(
-            proxyClientProvider, 30000, ResponseCodeHandler.HANDLE_404, false, false, 2);
+    blueGreen = settings.isBlueGreen() && !settings.isDaemon();
+    if (settings.isBlueGreen() && settings.isDaemon()) {
+      logger.warn("Blue/green reloading requires the proxy, so it's disabled in daemon mode");
+    }
+
+    if (settings.isDaemon()) {
+      // The application doesn't receive requests, so neither the proxy nor its handlers are needed
+      connectionPool = null;
+      grpcConnectionPool = null;
+      proxyClient = null;
+      shadowTraffic = null;
+      responseCache = null;
+      staticResources = null;
+      compressedBodyCache = null;
+      server = null;
+    } else {
+      var bufferPool = new DefaultByteBufferPool(true, BUFFER_SIZE);
+      connectionPool =
+          new BackendConnectionPool(
+              logger,
+              bufferPool,
+              settings.getProxyPoolMaxIdle(),
+              settings.getProxyPoolIdleMillis(),
+              "h2c".equals(settings.getProxyProtocol())
+                  ? BackendConnectionPool.Protocol.H2C
+                  : BackendConnectionPool.Protocol.HTTP1);
+      grpcConnectionPool =
+          new BackendConnectionPool(
+              logger,
+              bufferPool,
+              settings.getProxyPoolMaxIdle(),
+              settings.getProxyPoolIdleMillis(),
+              BackendConnectionPool.Protocol.H2C_PRIOR);
+      proxyClient =
+          new ReloadableProxyClient(
+              logger,
+              URI.create("http://" + settings.getHttpHost() + ":" + settings.getHttpPort()),
+              connectionPool,
+              grpcConnectionPool,
+              readinessGate,
+              settings.getProxyTimeoutMillis());
+      var proxyHandler =
+          ProxyHandler.builder()
+              .setProxyClient(proxyClient)
+              .setMaxRequestTime(settings.getProxyTimeoutMillis())
+              .setNext(ResponseCodeHandler.HANDLE_404)
+              // The retry budget is derived from the readiness, see ReloadableProxyClient
+              .setMaxConnectionRetries(0)
+              .setIdempotentRequestPredicate(ReplayableRequestHandler::isReplayable)
+              .build();
+      // gRPC streams may be open for as long as they want
+      var grpcProxyHandler =
+          ProxyHandler.builder()
+              .setProxyClient(proxyClient)
+              .setMaxRequestTime(-1)
+              .setNext(ResponseCodeHandler.HANDLE_404)
+              // The retry budget is derived from the readiness, see ReloadableProxyClient
+              .setMaxConnectionRetries(0)
+              .setIdempotentRequestPredicate(ReplayableRequestHandler::isReplayable)
+              .build();
+
+      var admissionQueue =
+          new AdmissionQueue(settings.getProxyQueueSize(), settings.getProxyQueueBytes());
+      var triggersReload = new ReloadTriggerPredicate(settings);
+      HttpHandler proxying =
+          new PredicateHandler(ReloadableProxyClient::isGrpc, grpcProxyHandler, proxyHandler);
+      if (settings.isProxyInProcess()) {
+        proxying = new InProcessDispatchHandler(logger, proxying);
+      }
+      if (settings.isShadow() && blueGreen) {
+        shadowTraffic =
+            new ShadowTrafficHandler(
+                settings.getShadowSample(), settings.getProxyTimeoutMillis(), proxying);
+        proxying = shadowTraffic;
+      } else {
+        if (settings.isShadow()) {
+          logger.warn("Shadow traffic requires blue/green reloading, so it's disabled");
+        }
+        shadowTraffic = null;
+      }
+      HttpHandler handler =
+          new ReloadHandler(
+              logger,
+              this,
+              admissionQueue,
+              triggersReload,
+              settings.isProxyServerTiming(),
+              new ReplayableRequestHandler(
+                  logger, settings.getProxyReplayBytes(), coalesce(recordLatency(proxying))));
+      if (settings.isProxyCache()) {
+        responseCache =
+            new ResponseCache(settings.getProxyCacheBytes(), settings.getProxyCacheHeaders());
+        handler =
+            new ResponseCacheHandler(
+                logger, this, responseCache, settings.isProxyCacheStale(), triggersReload, handler);
+      } else {
+        responseCache = null;
+      }
+      if (!settings.getProxyStatic().isEmpty()) {
+        staticResources =
+            new StaticResourceHandler(
+                logger, settings.getProxyStatic(), settings.getProxyStaticCacheBytes(), handler);
+        handler = staticResources;
+      } else {
+        staticResources = null;
+      }
+      if (settings.isProxyCompression()) {
+        compressedBodyCache = new CompressedBodyCache(settings.getProxyCompressionCacheBytes());
+        handler =
+            new CompressionHandler(
+                logger,
+                settings.getProxyCompressionProviders(),
+                compressedBodyCache,
+                compressionStatistics,
+                handler);
+      } else {
+        compressedBodyCache = null;
+      }
+
+      var builder =
+          Undertow.builder()
+              .addHttpListener(settings.getProxyHttpPort(), settings.getProxyHttpHost())
+              .setServerOption(UndertowOptions.ENABLE_HTTP2, settings.isProxyHttp2())
+              .setByteBufferPool(bufferPool)
+              .setHandler(handler);
+      if (!settings.getProxyKeystore().isEmpty()) {
+        var sslContext = createSslContext();
+        if (sslContext != null) {
+          // ALPN is negotiated automatically when HTTP/2 is enabled
+          builder.addHttpsListener(
+              settings.getProxyHttpsPort(), settings.getProxyHttpHost(), sslContext);
+        }
+      }
+      server = builder.build();
+      server.start();
+    }
+
+    // Without requests, a daemon is reloaded only eagerly
+    if (settings.isEager() || settings.isDaemon()) {
+      eagerExecutor =
+          Executors.newSingleThreadScheduledExecutor((r) -> new Thread(r, "live-reload-eager"));
+      buildLink.setChangeListener(this::changed);
+      eagerExecutor.scheduleWithFixedDelay(
+          this::reloadEagerly,
+          0L,
+          Math.max(settings.getEagerDelayMillis(), 10L),
+          TimeUnit.MILLISECONDS);
+    } else {
+      eagerExecutor = null;
+    }
+  }
+
+  private HttpHandler coalesce(HttpHandler next) {
+    if (!settings.isProxyCoalesce()) {
+      return next;
+    }
+    return new RequestCoalescingHandler(
+        logger,
+        settings.getProxyCoalesceBytes(),
+        settings.getProxyCacheHeaders(),
+        settings.getProxyCoalesceExclude(),
+        next);
+  }
+
+  private HttpHandler recordLatency(HttpHandler next) {
+    if (!settings.isProxyLatency()) {
+      return next;
+    }
+    return new LatencyRegressionHandler(
+        logger, settings.getProxyLatencySamples(), settings.getProxyLatencyThreshold(), next);
+  }
 
-    var handler = new ReloadHandler(logger, this, proxyHandler);
+  private SSLContext createSslContext() {
+    var password = settings.getProxyKeystorePassword().toCharArray();
+    try {
+      var keyStore = KeyStore.getInstance(new File(settings.getProxyKeystore()), password);
+      var keyManagerFactory =
+          KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keyManagerFactory.init(keyStore, password);
+      var sslContext = SSLContext.getInstance("TLS");
+      sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+      return sslContext;
+    } catch (IOException | GeneralSecurityException e) {
+      logger.error("Unable to load keystore, HTTPS is disabled: " + settings.getProxyKeystore(), e);
+      return null;
+    }
+  }
 
-    server =
-        Undertow.builder()
-            .addHttpListener(settings.getProxyHttpPort(), settings.getProxyHttpHost())
-            .setHandler(handler)
-            .build();
-    server.start();
+  private void invalidateConnections(int iteration) {
+    if (settings.isDaemon()) {
+      return;
+    }
+    connectionPool.invalidateBefore(iteration);
+    grpcConnectionPool.invalidateBefore(iteration);
   }
 
   private Hook initHook(String className) {
@@ -102,9 +347,17 @@ public class DevServerStart implements ReloadableServer {
     }
   }
 
-  private synchronized void startInternal(ReloadGeneration generation) {
-    this.classLoader = generation.getReloadedClassLoader();
-    this.appThread =
+  /**
+   * Starts the instance and waits for the startup hooks.
+   *
+   * @throws IllegalStateException if the main method fails before the startup hooks have finished
+   */
+  private void startInternal(ApplicationInstance instance) {
+    var classLoader = instance.getClassLoader();
+    // Set if the main method fails, the starting thread is interrupted then to stop waiting for it
+    var failure = new AtomicReference<Throwable>();
+    var starting = new AtomicReference<>(Thread.currentThread());
+    var appThread =
         new Thread(
             () -> {
               var currentThread = Thread.currentThread();
@@ -122,72 +375,448 @@ public class DevServerStart implements ReloadableServer {
                 logger.debug("After Application.main(String[]) execution");
               } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
                 logger.error("Failed to invoke main method on " + mainClass, e);
-                stopInternal();
-                throw new RuntimeException(e);
+                failed(failure, starting, e);
               } catch (InvocationTargetException e) {
                 if (e.getCause() instanceof InterruptedException) {
                   // Don't log InterruptedException, as likely they're intended
                 } else {
                   logger.error("Error in application main thread", e);
+                  failed(failure, starting, e.getCause());
                 }
               }
             });
     appThread.setContextClassLoader(classLoader);
+    instance.setThread(appThread);
+    if (blueGreen || settings.getHttpPort() == 0) {
+      // The application is expected to read its port from this property
+      System.setProperty(DevServerSettings.LiveReloadHttpPort, String.valueOf(instance.getPort()));
+    }
     appThread.start();
 
-    runHooks(appThread, classLoader, startupHooks);
-  }
+    try {
+      runHooks(instance, startupHooks);
+    } finally {
+      synchronized (failure) {
+        starting.set(null);
+        if (failure.get() != null) {
+          // The interruption is meant only for the startup hooks
+          Thread.interrupted();
+        }
+      }
+    }
+    if (failure.get() != null) {
+      throw new IllegalStateException("Failed to start " + mainClass, failure.get());
+    }
 
-  private synchronized void stopInternal() {
-    if (appThread != null) {
-      logger.debug("Stopping " + mainClass);
+    var inProcessHandler = InProcessHandlers.get(classLoader);
+    if (inProcessHandler != null && settings.isProxyInProcess()) {
+      logger.debug(
+          InProcessDispatchHandler.isSupported(inProcessHandler)
+              ? "Requests are passed to the in-process handler " + inProcessHandler
+              : "Unsupported in-process handler, proxying requests over HTTP: "
+                  + inProcessHandler.getClass().getName());
+    }
 
-      runHooks(appThread, classLoader, shutdownHooks);
+    // The application is ready, so opening connections before the first request comes in
+    if (server != null) {
+      connectionPool.prewarm(
+          server.getWorker(),
+          instance.getUri(),
+          instance.getGeneration().getIteration(),
+          settings.getProxyPoolPrewarm());
+    }
+  }
 
-      appThread = null;
+  private static void failed(
+      AtomicReference<Throwable> failure, AtomicReference<Thread> starting, Throwable e) {
+    synchronized (failure) {
+      failure.set(e);
+      var thread = starting.get();
+      if (thread != null) {
+        thread.interrupt();
+      }
     }
+  }
+
+  private void stopInternal(ApplicationInstance instance) {
+    synchronized (instance) {
+      var appThread = instance.getThread();
+      if (appThread == null) {
+        return;
+      }
+      logger.debug("Stopping " + mainClass + " " + instance);
+
+      runHooks(instance, shutdownHooks);
+
+      instance.setThread(null);
+      InProcessHandlers.unregister(instance.getClassLoader());
 
-    if (classLoader != null) {
       logger.debug("Cleaning up old ClassLoader");
-      if (classLoader instanceof Closeable) {
+      if (instance.getClassLoader() instanceof Closeable closeable) {
         try {
-          ((Closeable) classLoader).close();
+          closeable.close();
         } catch (Exception e) {
           logger.error("Failed to close class loader", e);
         }
       }
-      classLoader = null;
       System.gc();
     }
   }
 
-  private void runHooks(Thread th, ClassLoader cl, List<Hook> hooks) {
+  private void runHooks(ApplicationInstance instance, List<Hook> hooks) {
     hooks.forEach(
         (v) -> {
           logger.debug("Running " + v.getClass().getSimpleName());
           long start = System.currentTimeMillis();
-          v.hook(th, cl, settings, logger);
+          v.hook(instance.getThread(), instance.getClassLoader(), instance.getSettings(), logger);
           long time = System.currentTimeMillis() - start;
           logger.debug(v.getClass().getSimpleName() + " took " + time + "ms");
         });
   }
 
+  /**
+   * Waits until the instance finishes its in-flight requests, but no longer than the configured
+   * drain timeout.
+   *
+   * @return the time spent waiting in milliseconds
+   */
+  private long drain(ApplicationInstance instance) {
+    var start = System.currentTimeMillis();
+    var deadline = start + settings.getDrainTimeoutMillis();
+    try {
+      while (instance.getActiveRequests() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10L);
+      }
+    } catch (InterruptedException e) {
+      logger.error(e);
+    }
+    var active = instance.getActiveRequests();
+    if (active > 0) {
+      logger.warn(active + " requests are still in flight, stopping " + instance + " anyway");
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  /** Stops the old instance in blue/green mode once it finishes its in-flight requests. */
+  private void retire(ApplicationInstance instance) {
+    var stopping = new CompletableFuture<Void>();
+    stoppingPorts.put(instance.getPort(), stopping);
+    shutdownExecutor.execute(
+        () -> {
+          try {
+            var drainMillis = drain(instance);
+            logger.debug("Drained " + instance + " in " + drainMillis + "ms");
+            stopInternal(instance);
+            invalidateConnections(instance.getGeneration().getIteration() + 1);
+          } finally {
+            stoppingPorts.remove(instance.getPort());
+            stopping.complete(null);
+          }
+        });
+  }
+
+  /**
+   * Chooses a port for the new instance in blue/green mode. Waits for an old instance to stop if
+   * all the ports are busy.
+   */
+  private int nextPort(ApplicationInstance previous) {
+    var ports =
+        settings.getHttpPorts().stream()
+            .filter((v) -> previous == null || v != previous.getPort())
+            .toList();
+    for (var port : ports) {
+      if (!stoppingPorts.containsKey(port)) {
+        return port;
+      }
+    }
+    var port = ports.get(0);
+    var stopping = stoppingPorts.get(port);
+    if (stopping != null) {
+      logger.debug("Waiting for the instance on port " + port + " to stop");
+      stopping.join();
+    }
+    return port;
+  }
+
+  /** Asks the system for a free port, so servers running on the same machine never clash. */
+  private int freePort() {
+    try (var socket = new ServerSocket(0, 1, InetAddress.getByName(settings.getHttpHost()))) {
+      return socket.getLocalPort();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to find a free port", e);
+    }
+  }
+
+  /**
+   * @return the instance which is currently receiving requests, may be null
+   */
+  ApplicationInstance getCurrent() {
+    return current;
+  }
+
   @Override
   public void stop() {
-    server.stop();
-    stopInternal();
+    if (eagerExecutor != null) {
+      buildLink.setChangeListener(null);
+      eagerExecutor.shutdownNow();
+    }
+    if (server != null) {
+      server.stop();
+    }
+    if (staticResources != null) {
+      staticResources.close();
+    }
+    reloadExecutor.shutdown();
+    shutdownExecutor.shutdown();
+    try {
+      shutdownExecutor.awaitTermination(
+          settings.getDrainTimeoutMillis() * 2, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      logger.error(e);
+    }
+    var shadowed = shadow;
+    if (shadowed != null) {
+      stopInternal(shadowed);
+      shadow = null;
+    }
+    var instance = current;
+    if (instance != null) {
+      stopInternal(instance);
+      current = null;
+    }
+  }
+
+  @Override
+  public String report() {
+    return shadowTraffic == null ? null : shadowTraffic.report();
   }
 
   @Override
   public boolean reload() {
+    try {
+      return reloadAsync().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Checks whether a request has to wait for a reload. Doesn't block.
+   *
+   * @return true if a reload is in progress or there are pending changes
+   */
+  boolean isReloadPending() {
+    return inFlightReload.get() != null || buildLink.isReloadPending();
+  }
+
+  /**
+   * @return true if a reload has been started and isn't finished yet
+   */
+  boolean isReloadInProgress() {
+    return inFlightReload.get() != null;
+  }
+
+  /**
+   * Reloads the application in background if necessary. Only one reload is performed at a time, so
+   * concurrent callers receive the same future.
+   *
+   * @return the future which is completed when the reloaded application is ready
+   */
+  CompletableFuture<Boolean> reloadAsync() {
+    while (true) {
+      var existing = inFlightReload.get();
+      if (existing != null) {
+        return existing;
+      }
+      var future = new CompletableFuture<Boolean>();
+      if (inFlightReload.compareAndSet(null, future)) {
+        reloadExecutor.execute(
+            () -> {
+              try {
+                var wasReloaded = reloadInternal();
+                lastReloadFailed = false;
+                inFlightReload.set(null);
+                future.complete(wasReloaded);
+              } catch (Throwable e) {
+                lastReloadFailed = true;
+                readinessGate.failed(e);
+                inFlightReload.set(null);
+                future.completeExceptionally(e);
+              }
+            });
+        return future;
+      }
+    }
+  }
+
+  /** Called by the build whenever it detects changes. */
+  private void changed() {
+    lastChangeMillis = System.currentTimeMillis();
+    changes.incrementAndGet();
+  }
+
+  /**
+   * Starts a reload in background once the changes settle down, so the application is usually ready
+   * by the time it's needed. A failed reload is retried only after new changes, as it would fail
+   * the same way.
+   */
+  private void reloadEagerly() {
+    try {
+      // Builds without a file watcher report their changes only when asked
+      buildLink.isReloadPending();
+      var seen = changes.get();
+      if (seen == eagerChanges
+          || isReloadInProgress()
+          || System.currentTimeMillis() - lastChangeMillis < settings.getEagerDelayMillis()) {
+        return;
+      }
+      eagerChanges = seen;
+      reloadAsync()
+          .whenComplete(
+              (reloaded, e) -> {
+                if (e != null) {
+                  logger.error("Error during reloading", e);
+                }
+              });
+    } catch (RuntimeException e) {
+      // Otherwise the periodic check would be cancelled
+      logger.error("Error during reloading", e);
+    }
+  }
+
+  /**
+   * Checks whether requests may be served by the current instance while a reload is in progress.
+   * It's only possible in blue/green mode and only if the last reload didn't fail, otherwise
+   * requests should wait to see the compilation error.
+   *
+   * @return true if requests don't have to wait for a reload
+   */
+  boolean canServeDuringReload() {
+    return blueGreen && canServeStale();
+  }
+
+  /**
+   * Checks whether the responses of the current instance may be used while it's being reloaded.
+   * It's not the case if the last reload has failed, as the error must be shown instead.
+   *
+   * @return true if there is an instance and the last reload succeeded
+   */
+  boolean canServeStale() {
+    return current != null && !lastReloadFailed;
+  }
+
+  /**
+   * @return statistics of recent reloads
+   */
+  ReloadStatistics getReloadStatistics() {
+    return reloadStatistics;
+  }
+
+  private boolean reloadInternal() {
+    reloadStatistics.reloadStarted();
+    var restarted = false;
+    try {
+      restarted = reloadApplication();
+      return restarted;
+    } finally {
+      var duration = reloadStatistics.reloadFinished(restarted);
+      if (restarted) {
+        logger.debug("Finished reloading in " + duration + "ms");
+        var compression = compressionStatistics.reset();
+        if (compression != null) {
+          logger.debug(compression + " since the previous reload");
+        }
+      }
+    }
+  }
+
+  private boolean reloadApplication() {
     var reloadResult = buildLink.reload();
     if (reloadResult instanceof ReloadGeneration) {
       var casted = (ReloadGeneration) reloadResult;
       // New application classes
-      logger.info("🔃 Reloading an application");
-      stopInternal();
-      startInternal(casted);
-      logger.debug("Finished reloading");
+      var previous = current;
+      if (blueGreen) {
+        logger.info("🔃 Reloading an application");
+        var shadowed = shadow;
+        if (shadowed != null) {
+          // Its port may be needed by the new instance
+          shadow = null;
+          shadowTraffic.stopMirroring();
+          retire(shadowed);
+        }
+        var port = nextPort(previous);
+        var instance =
+            new ApplicationInstance(casted, settings.withHttpPort(port == 0 ? freePort() : port));
+        // The previous instance keeps serving while the new one starts
+        try {
+          startInternal(instance);
+        } catch (RuntimeException | Error e) {
+          // Nothing has been switched yet, so only the new instance has to go
+          stopInternal(instance);
+          if (previous != null) {
+            System.setProperty(
+                DevServerSettings.LiveReloadHttpPort, String.valueOf(previous.getPort()));
+          }
+          throw e;
+        }
+        proxyClient.setTarget(instance.getUri());
+        current = instance;
+        readinessGate.ready(instance);
+        buildLink.applicationStarted();
+        if (responseCache != null) {
+          responseCache.activate(casted.getIteration());
+        }
+        if (compressedBodyCache != null) {
+          compressedBodyCache.clear();
+        }
+        if (previous != null) {
+          logger.debug("Switched from " + previous + " to " + instance);
+          if (shadowTraffic != null) {
+            logger.debug("Mirroring requests to " + previous);
+            shadow = previous;
+            shadowTraffic.mirror(previous, instance);
+          } else {
+            retire(previous);
+          }
+        }
+      } else {
+        var drainMillis = previous == null ? 0L : drain(previous);
+        logger.info(
+            "🔃 Reloading an application"
+                + (drainMillis > 0
+                    ? " (in-flight requests drained in " + drainMillis + "ms)"
+                    : ""));
+        if (previous != null) {
+          readinessGate.restarting();
+          stopInternal(previous);
+          invalidateConnections(casted.getIteration());
+        }
+        var instance =
+            new ApplicationInstance(
+                casted, settings.getHttpPort() == 0 ? settings.withHttpPort(freePort()) : settings);
+        if (!settings.isDaemon()) {
+          proxyClient.setTarget(instance.getUri());
+        }
+        current = instance;
+        try {
+          startInternal(instance);
+        } catch (RuntimeException | Error e) {
+          stopInternal(instance);
+          throw e;
+        }
+        readinessGate.ready(instance);
+        buildLink.applicationStarted();
+        if (responseCache != null) {
+          responseCache.activate(casted.getIteration());
+        }
+        if (compressedBodyCache != null) {
+          compressedBodyCache.clear();
+        }
+      }
       return true;
     } else if (reloadResult == null) {
       // No change in the application classes
@@ -0,0 +1,151 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.Connectors;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import io.undertow.util.ImmediatePooledByteBuffer;
+import io.undertow.util.StatusCodes;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import me.seroperson.reload.live.build.BuildLogger;
+import me.seroperson.reload.live.handler.InProcessExchange;
+import me.seroperson.reload.live.handler.InProcessHandler;
+import me.seroperson.reload.live.handler.InProcessHandlers;
+
+/**
+ * Passes requests to the handler registered by the application in {@link InProcessHandlers}, so
+ * they don't go through HTTP. Requests to applications without a supported handler are proxied.
+ */
+final class InProcessDispatchHandler implements HttpHandler {
+
+  private final BuildLogger logger;
+  private final HttpHandler next;
+
+  /**
+   * Creates a handler.
+   *
+   * @param logger the logger
+   * @param next the handler which proxies requests
+   */
+  InProcessDispatchHandler(BuildLogger logger, HttpHandler next) {
+    this.logger = logger;
+    this.next = next;
+  }
+
+  /**
+   * @param handler the registered handler
+   * @return true if requests can be passed to it
+   */
+  static boolean isSupported(Object handler) {
+    return handler instanceof HttpHandler || handler instanceof InProcessHandler;
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    var instance = exchange.getAttachment(ReloadHandler.INSTANCE);
+    var handler = instance == null ? null : InProcessHandlers.get(instance.getClassLoader());
+    if (handler instanceof HttpHandler httpHandler) {
+      restoreBody(exchange);
+      var thread = Thread.currentThread();
+      var contextClassLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader(instance.getClassLoader());
+      try {
+        httpHandler.handleRequest(exchange);
+      } finally {
+        thread.setContextClassLoader(contextClassLoader);
+      }
+    } else if (handler instanceof InProcessHandler blockingHandler) {
+      restoreBody(exchange);
+      exchange.dispatch(() -> handleBlocking(exchange, instance, blockingHandler));
+    } else {
+      next.handleRequest(exchange);
+    }
+  }
+
+  private void handleBlocking(
+      HttpServerExchange exchange, ApplicationInstance instance, InProcessHandler handler) {
+    var thread = Thread.currentThread();
+    var contextClassLoader = thread.getContextClassLoader();
+    thread.setContextClassLoader(instance.getClassLoader());
+    try {
+      exchange.startBlocking();
+      handler.handle(new BlockingExchange(exchange));
+    } catch (Exception e) {
+      logger.error("Error in the in-process handler", e);
+      if (!exchange.isResponseStarted()) {
+        exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+      }
+    } finally {
+      thread.setContextClassLoader(contextClassLoader);
+      exchange.endExchange();
+    }
+  }
+
+  /** Puts back the body which has been read in advance to make the request replayable. */
+  private static void restoreBody(HttpServerExchange exchange) {
+    var body = exchange.removeAttachment(ReplayableRequestHandler.BODY);
+    if (body != null) {
+      Connectors.ungetRequestBytes(exchange, new ImmediatePooledByteBuffer(ByteBuffer.wrap(body)));
+      Connectors.resetRequestChannel(exchange);
+    }
+  }
+
+  /** Exposes an exchange in blocking mode to an {@link InProcessHandler}. */
+  private static final class BlockingExchange implements InProcessExchange {
+    private final HttpServerExchange exchange;
+
+    private BlockingExchange(HttpServerExchange exchange) {
+      this.exchange = exchange;
+    }
+
+    @Override
+    public String getMethod() {
+      return exchange.getRequestMethod().toString();
+    }
+
+    @Override
+    public String getRequestPath() {
+      return exchange.getRequestPath();
+    }
+
+    @Override
+    public String getQueryString() {
+      return exchange.getQueryString();
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestHeaders() {
+      var headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+      for (var values : exchange.getRequestHeaders()) {
+        headers.put(values.getHeaderName().toString(), new ArrayList<>(values));
+      }
+      return headers;
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+      return exchange.getInputStream();
+    }
+
+    @Override
+    public void setStatus(int status) {
+      exchange.setStatusCode(status);
+    }
+
+    @Override
+    public void addResponseHeader(String name, String value) {
+      exchange.getResponseHeaders().add(new HttpString(name), value);
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+      return exchange.getOutputStream();
+    }
+  }
+}
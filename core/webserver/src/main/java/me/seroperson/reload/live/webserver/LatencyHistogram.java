@@ -0,0 +1,72 @@
+package me.seroperson.reload.live.webserver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in microseconds with a fixed number of buckets.
+ *
+ * <p>Like in HdrHistogram, buckets are log-linear: every power of two is split into {@value
+ * #SUB_BUCKETS} buckets of the same width, so percentiles are accurate to about 6% at any scale
+ * while the memory footprint stays constant. Latencies above {@value #MAX_EXPONENT} powers of two
+ * (about two minutes) fall into the last bucket.
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 27;
+  private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * @param micros the latency in microseconds
+   */
+  void record(long micros) {
+    counts.incrementAndGet(index(micros));
+  }
+
+  /**
+   * @param quantile the quantile, from 0 to 1
+   * @return the latency in microseconds, or 0 if nothing is recorded
+   */
+  long percentile(double quantile) {
+    var snapshot = new long[BUCKETS];
+    var total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    var rank = Math.max((long) Math.ceil(quantile * total), 1L);
+    var seen = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return middle(i);
+      }
+    }
+    return 0L;
+  }
+
+  private static int index(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) Math.max(micros, 0L);
+    }
+    var exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent >= MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    var subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long middle(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    var shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    var subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    var lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+    return lowest + ((1L << shift) >> 1);
+  }
+}
@@ -0,0 +1,188 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.StatusCodes;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import me.seroperson.reload.live.build.BuildLogger;
+
+/**
+ * Records the latency of the application per route and generation, and warns when a route has
+ * become slower after a reload.
+ *
+ * <p>The latency is the time until the application starts to respond. Both generations are compared
+ * over the same window of their life, the responses which follow the first few ones, so the cold
+ * start of a freshly loaded generation isn't taken for a regression. Only the current and the
+ * previous generations are kept, and the number of routes in each is capped.
+ */
+final class LatencyRegressionHandler implements HttpHandler {
+
+  private static final int MAX_ROUTES = 256;
+  // The very first responses of a generation are dominated by class loading
+  private static final int WARMUP_SAMPLES = 10;
+  // Differences below it are noise rather than regressions
+  private static final long MIN_REGRESSION_MICROS = TimeUnit.MILLISECONDS.toMicros(5L);
+  private static final Pattern ID_SEGMENT =
+      Pattern.compile(
+          "\\d+"
+              + "|\\p{XDigit}{8}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{12}"
+              + "|(?=\\p{XDigit}*\\d)\\p{XDigit}{16,}");
+
+  private final BuildLogger logger;
+  private final int samples;
+  private final double threshold;
+  private final HttpHandler next;
+
+  private final AtomicReference<Generation> current = new AtomicReference<>();
+
+  /**
+   * Creates a handler.
+   *
+   * @param logger the logger to report regressions to
+   * @param samples the number of responses of a route to compare
+   * @param threshold how many times the latency has to grow to be reported
+   * @param next the handler which proxies requests
+   */
+  LatencyRegressionHandler(BuildLogger logger, int samples, double threshold, HttpHandler next) {
+    this.logger = logger;
+    this.samples = samples;
+    this.threshold = threshold;
+    this.next = next;
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    var instance = exchange.getAttachment(ReloadHandler.INSTANCE);
+    if (instance != null) {
+      var iteration = instance.getGeneration().getIteration();
+      var started = System.nanoTime();
+      exchange.addResponseWrapper(
+          (factory, wrapped) -> {
+            if (wrapped.getStatusCode() < StatusCodes.INTERNAL_SERVER_ERROR
+                && !ReloadableProxyClient.isHeld(wrapped)) {
+              record(iteration, wrapped, System.nanoTime() - started);
+            }
+            return factory.create();
+          });
+    }
+    next.handleRequest(exchange);
+  }
+
+  private void record(int iteration, HttpServerExchange exchange, long nanos) {
+    var generation = generation(iteration);
+    if (generation == null) {
+      return;
+    }
+    var route = normalize(exchange);
+    var latencies = generation.routes.get(route);
+    if (latencies == null) {
+      if (generation.routes.size() >= MAX_ROUTES) {
+        if (generation.overflowReported.compareAndSet(false, true)) {
+          logger.debug("Too many routes, latency of the new ones isn't recorded: " + route);
+        }
+        return;
+      }
+      latencies = generation.routes.computeIfAbsent(route, (v) -> new RouteLatencies());
+    }
+    var count = latencies.responses.incrementAndGet();
+    if (count <= WARMUP_SAMPLES || count > WARMUP_SAMPLES + samples) {
+      return;
+    }
+    latencies.histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    if (count == WARMUP_SAMPLES + samples) {
+      var previous = generation.previous;
+      var before = previous == null ? null : previous.routes.get(route);
+      if (before != null && before.responses.get() >= WARMUP_SAMPLES + samples) {
+        compare(route, iteration, before.histogram, latencies.histogram);
+      }
+    }
+  }
+
+  /**
+   * @return the generation to record the latency to, or null if it's already discarded
+   */
+  private Generation generation(int iteration) {
+    while (true) {
+      var generation = current.get();
+      if (generation != null && generation.iteration == iteration) {
+        return generation;
+      }
+      if (generation != null && generation.iteration > iteration) {
+        // Late responses of the previous generation
+        var previous = generation.previous;
+        return previous != null && previous.iteration == iteration ? previous : null;
+      }
+      var next = new Generation(iteration, generation);
+      if (current.compareAndSet(generation, next)) {
+        if (generation != null) {
+          generation.previous = null;
+        }
+        return next;
+      }
+    }
+  }
+
+  private void compare(
+      String route, int iteration, LatencyHistogram before, LatencyHistogram after) {
+    var regressions = new ArrayList<String>();
+    for (var percentile : new int[] {50, 99}) {
+      var was = before.percentile(percentile / 100.0);
+      var now = after.percentile(percentile / 100.0);
+      if (now > was * threshold && now - was >= MIN_REGRESSION_MICROS) {
+        regressions.add("p" + percentile + " " + format(was) + " → " + format(now));
+      }
+    }
+    if (!regressions.isEmpty()) {
+      logger.warn(route + " " + String.join(", ", regressions) + " since reload #" + iteration);
+    }
+  }
+
+  /**
+   * @param micros the latency in microseconds
+   * @return the latency in milliseconds, with a fraction if it's small
+   */
+  static String format(long micros) {
+    return micros < 10_000L
+        ? String.format(Locale.ROOT, "%.1fms", micros / 1_000.0)
+        : (micros / 1_000L) + "ms";
+  }
+
+  /**
+   * @return the method and the path with identifiers replaced by a placeholder
+   */
+  static String normalize(HttpServerExchange exchange) {
+    var segments = exchange.getRequestPath().split("/", -1);
+    for (int i = 0; i < segments.length; i++) {
+      if (ID_SEGMENT.matcher(segments[i]).matches()) {
+        segments[i] = "{id}";
+      }
+    }
+    return exchange.getRequestMethod() + " " + String.join("/", segments);
+  }
+
+  private static final class Generation {
+    private final int iteration;
+    // Cleared once it's not needed, so only two generations are kept
+    private volatile Generation previous;
+    private final Map<String, RouteLatencies> routes = new ConcurrentHashMap<>();
+    private final AtomicBoolean overflowReported = new AtomicBoolean();
+
+    private Generation(int iteration, Generation previous) {
+      this.iteration = iteration;
+      this.previous = previous;
+    }
+  }
+
+  private static final class RouteLatencies {
+    private final AtomicInteger responses = new AtomicInteger();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+  }
+}
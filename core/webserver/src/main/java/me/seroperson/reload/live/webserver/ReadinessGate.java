@@ -0,0 +1,108 @@
+package me.seroperson.reload.live.webserver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks whether the application is ready to receive requests.
+ *
+ * <p>Requests which fail to reach the application while it's restarting are held here until the new
+ * instance passes its startup hooks, instead of being retried blindly. How long they may wait, and
+ * how many times they may be retried, is derived from the measured time the application takes to
+ * become ready.
+ */
+final class ReadinessGate {
+
+  // Used when the application hasn't restarted yet
+  private static final long DEFAULT_READY_MILLIS = 1000L;
+  private static final long MIN_HOLD_MILLIS = 1000L;
+  private static final int MAX_RETRIES = 8;
+
+  private volatile CompletableFuture<ApplicationInstance> ready = new CompletableFuture<>();
+  private volatile long restartStartedNanos = System.nanoTime();
+  private volatile long averageReadyMillis = DEFAULT_READY_MILLIS;
+
+  /** Marks the beginning of a restart. Requests which fail from now on are held. */
+  synchronized void restarting() {
+    if (ready.isDone()) {
+      ready = new CompletableFuture<>();
+    }
+    restartStartedNanos = System.nanoTime();
+  }
+
+  /**
+   * Marks the instance as ready to receive requests and releases the held ones.
+   *
+   * @param instance the instance which has passed its startup hooks
+   */
+  synchronized void ready(ApplicationInstance instance) {
+    if (!ready.isDone()) {
+      var elapsed = (System.nanoTime() - restartStartedNanos) / 1_000_000L;
+      // Smoothing, so one slow start doesn't affect the timeout too much
+      averageReadyMillis = (averageReadyMillis + elapsed) / 2;
+      ready.complete(instance);
+    } else {
+      ready = CompletableFuture.completedFuture(instance);
+    }
+  }
+
+  /**
+   * Marks the restart as failed, so the held requests fail as well.
+   *
+   * @param e the cause
+   */
+  synchronized void failed(Throwable e) {
+    ready.completeExceptionally(e);
+  }
+
+  /**
+   * Checks whether a request which has failed to reach the given instance is worth holding. It's so
+   * if the application is restarting or if there is a newer instance.
+   *
+   * @param instance the instance the request was sent to, may be null
+   * @return true if the request should wait for {@link #awaitReady(long)}
+   */
+  boolean shouldHold(ApplicationInstance instance) {
+    var current = ready;
+    return !current.isDone()
+        || (!current.isCompletedExceptionally() && current.getNow(null) != instance);
+  }
+
+  /**
+   * @param limitMillis the time the request has left, or a negative value if it's unlimited
+   * @return the future which is completed with a ready instance, or fails on timeout
+   */
+  CompletableFuture<ApplicationInstance> awaitReady(long limitMillis) {
+    var timeout = holdTimeoutMillis();
+    if (limitMillis >= 0) {
+      timeout = Math.min(timeout, limitMillis);
+    }
+    return ready.copy().orTimeout(timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Every retry of a request waits for the application to become ready, so a request may be retried
+   * as many times as the application can restart within the request timeout. A slow application
+   * gets fewer retries, so a request doesn't fail on the timeout after retrying in vain.
+   *
+   * @param requestTimeoutMillis the time a request may take, or a non-positive value if unlimited
+   * @return how many times a failed request may be retried
+   */
+  int retryBudget(long requestTimeoutMillis) {
+    if (requestTimeoutMillis <= 0) {
+      return MAX_RETRIES;
+    }
+    var restarts = requestTimeoutMillis / Math.max(averageReadyMillis, 1L);
+    return (int) Math.max(1L, Math.min(restarts, MAX_RETRIES));
+  }
+
+  /**
+   * @return how long a request may wait for the application, based on previous restarts
+   */
+  long holdTimeoutMillis() {
+    var elapsed = (System.nanoTime() - restartStartedNanos) / 1_000_000L;
+    var remaining = Math.max(averageReadyMillis - elapsed, 0L);
+    // Giving one more average restart as a margin
+    return Math.max(remaining + averageReadyMillis, MIN_HOLD_MILLIS);
+  }
+}
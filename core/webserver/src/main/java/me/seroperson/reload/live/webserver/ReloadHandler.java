@@ -1,37 +1,137 @@
 package me.seroperson.reload.live.webserver;
 
+import io.undertow.predicate.Predicate;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
 import me.seroperson.reload.live.build.BuildLogger;
-import me.seroperson.reload.live.build.ReloadableServer;
 
 public class ReloadHandler implements HttpHandler {
 
-  public static final AttachmentKey<Boolean> WAS_RELOADED = AttachmentKey.create(Boolean.class);
+  static final AttachmentKey<ApplicationInstance> INSTANCE =
+      AttachmentKey.create(ApplicationInstance.class);
 
-  private final ReloadableServer server;
+  private final DevServerStart server;
+  private final AdmissionQueue admissionQueue;
+  private final Predicate triggersReload;
+  private final boolean serverTiming;
   private final HttpHandler next;
   private final BuildLogger logger;
 
-  public ReloadHandler(BuildLogger logger, ReloadableServer server, HttpHandler next) {
+  public ReloadHandler(
+      BuildLogger logger,
+      DevServerStart server,
+      AdmissionQueue admissionQueue,
+      Predicate triggersReload,
+      boolean serverTiming,
+      HttpHandler next) {
     this.logger = logger;
     this.server = server;
+    this.admissionQueue = admissionQueue;
+    this.triggersReload = triggersReload;
+    this.serverTiming = serverTiming;
     this.next = next;
   }
 
   @Override
   public void handleRequest(HttpServerExchange httpServerExchange) throws Exception {
-    try {
-      var wasReloaded = server.reload();
+    httpServerExchange.setRelativePath(httpServerExchange.getRequestPath());
+    if (serverTiming) {
+      RequestTiming.start(httpServerExchange);
+    }
+
+    if (!server.isReloadPending()) {
+      proceed(httpServerExchange);
+      return;
+    }
+
+    if (!server.isReloadInProgress()
+        && server.getCurrent() != null
+        && !triggersReload.resolve(httpServerExchange)) {
+      // Not starting a reload for this request, the running version serves it as is
+      proceed(httpServerExchange);
+      return;
+    }
+
+    if (server.canServeDuringReload()) {
+      // Blue/green: the current instance keeps serving while the new one is starting
+      server
+          .reloadAsync()
+          .whenComplete(
+              (wasReloaded, e) -> {
+                if (e != null) {
+                  logger.error("Error during reloading", e);
+                }
+              });
+      proceed(httpServerExchange);
+      return;
+    }
 
-      httpServerExchange.setRelativePath(httpServerExchange.getRequestPath());
-      httpServerExchange.putAttachment(WAS_RELOADED, wasReloaded);
+    var contentLength = httpServerExchange.getRequestContentLength();
+    if (!admissionQueue.tryAcquire(contentLength)) {
+      var retryAfter = (server.getReloadStatistics().estimateRemainingMillis() + 999L) / 1000L;
+      logger.debug("Too many requests are waiting for the reload, rejecting");
+      httpServerExchange.setStatusCode(StatusCodes.SERVICE_UNAVAILABLE);
+      httpServerExchange.getResponseHeaders().put(Headers.RETRY_AFTER, Math.max(retryAfter, 1L));
+      httpServerExchange.endExchange();
+      return;
+    }
+
+    // Parking the exchange until the reload is finished. It runs on a separate thread, so the IO
+    // thread is free to serve other connections meanwhile.
+    httpServerExchange.dispatch(
+        SameThreadExecutor.INSTANCE,
+        () ->
+            server
+                .reloadAsync()
+                .whenComplete(
+                    (wasReloaded, e) -> {
+                      admissionQueue.release(contentLength);
+                      if (e != null) {
+                        logger.error("Error during reloading", e);
+                        httpServerExchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                        httpServerExchange.endExchange();
+                      } else {
+                        httpServerExchange.dispatch(
+                            httpServerExchange.getIoThread(), this::proceed);
+                        logger.debug("Request successfully handled in ReloadHandler");
+                      }
+                    }));
+  }
+
+  private void proceed(HttpServerExchange httpServerExchange) throws Exception {
+    var timing = httpServerExchange.getAttachment(RequestTiming.KEY);
+    if (timing != null) {
+      timing.reloadFinished();
+    }
+    var instance = server.getCurrent();
+    if (instance != null) {
+      // Counting requests, so the instance isn't stopped until they're finished
+      attachInstance(httpServerExchange, instance);
+      httpServerExchange.addExchangeCompleteListener(
+          (exchange, nextListener) -> {
+            exchange.getAttachment(INSTANCE).requestFinished();
+            nextListener.proceed();
+          });
+    }
+    next.handleRequest(httpServerExchange);
+  }
 
-      next.handleRequest(httpServerExchange);
-      logger.debug("Request successfully handled in ReloadHandler");
-    } catch (Throwable e) {
-      logger.error("Error during reloading", e);
+  /**
+   * Attaches the instance which serves the exchange. If there was another one attached, the request
+   * is moved from it to the new one.
+   *
+   * @param exchange the exchange
+   * @param instance the instance
+   */
+  static void attachInstance(HttpServerExchange exchange, ApplicationInstance instance) {
+    instance.requestStarted();
+    var previous = exchange.putAttachment(INSTANCE, instance);
+    if (previous != null) {
+      previous.requestFinished();
     }
   }
 }
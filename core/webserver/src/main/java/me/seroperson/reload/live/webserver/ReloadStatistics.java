@@ -0,0 +1,66 @@
+package me.seroperson.reload.live.webserver;
+
+/**
+ * Keeps durations of recent reloads to estimate how long the current one is going to take.
+ *
+ * <p>Only reloads which actually restarted the application are recorded.
+ */
+final class ReloadStatistics {
+
+  private static final int HISTORY_SIZE = 8;
+  // Used when there were no reloads yet
+  private static final long DEFAULT_DURATION_MILLIS = 1000L;
+
+  private final long[] durations = new long[HISTORY_SIZE];
+  private int count = 0;
+  private int next = 0;
+
+  private volatile long currentStartNanos = 0L;
+
+  /** Marks the beginning of a reload. */
+  void reloadStarted() {
+    currentStartNanos = System.nanoTime();
+  }
+
+  /**
+   * Marks the end of a reload.
+   *
+   * @param restarted whether the application was restarted, only such reloads are recorded
+   * @return the duration of this reload in milliseconds
+   */
+  long reloadFinished(boolean restarted) {
+    var duration = (System.nanoTime() - currentStartNanos) / 1_000_000L;
+    currentStartNanos = 0L;
+    if (restarted) {
+      synchronized (this) {
+        durations[next] = duration;
+        next = (next + 1) % HISTORY_SIZE;
+        count = Math.min(count + 1, HISTORY_SIZE);
+      }
+    }
+    return duration;
+  }
+
+  /**
+   * @return average duration of recent reloads in milliseconds
+   */
+  synchronized long averageMillis() {
+    if (count == 0) {
+      return DEFAULT_DURATION_MILLIS;
+    }
+    long sum = 0L;
+    for (int i = 0; i < count; i++) {
+      sum += durations[i];
+    }
+    return sum / count;
+  }
+
+  /**
+   * @return estimated time in milliseconds until the current reload finishes
+   */
+  long estimateRemainingMillis() {
+    var start = currentStartNanos;
+    var elapsed = start == 0L ? 0L : (System.nanoTime() - start) / 1_000_000L;
+    return Math.max(averageMillis() - elapsed, 0L);
+  }
+}
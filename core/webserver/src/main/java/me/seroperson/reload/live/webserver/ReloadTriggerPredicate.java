@@ -0,0 +1,95 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import me.seroperson.reload.live.settings.DevServerSettings;
+
+/**
+ * Decides whether a request may trigger a reload. Requests which may not are served by the running
+ * version of the application, so a burst of asset requests doesn't wait for a compilation.
+ *
+ * <p>A request triggers a reload if its path matches one of the include globs (or there are none),
+ * doesn't match any of the exclude globs and, if header conditions are configured, matches at least
+ * one of them.
+ */
+final class ReloadTriggerPredicate implements Predicate {
+
+  private final List<Pattern> include;
+  private final List<Pattern> exclude;
+  private final List<HeaderCondition> headers;
+
+  ReloadTriggerPredicate(DevServerSettings settings) {
+    this.include = settings.getTriggerInclude().stream().map(ReloadTriggerPredicate::glob).toList();
+    this.exclude = settings.getTriggerExclude().stream().map(ReloadTriggerPredicate::glob).toList();
+    this.headers =
+        settings.getTriggerHeaders().stream().map(ReloadTriggerPredicate::header).toList();
+  }
+
+  @Override
+  public boolean resolve(HttpServerExchange exchange) {
+    var path = exchange.getRequestPath();
+    if (!include.isEmpty() && include.stream().noneMatch((v) -> v.matcher(path).matches())) {
+      return false;
+    }
+    if (exclude.stream().anyMatch((v) -> v.matcher(path).matches())) {
+      return false;
+    }
+    return headers.isEmpty() || headers.stream().anyMatch((v) -> v.matches(exchange));
+  }
+
+  /**
+   * Converts a glob to a regular expression. {@code **} matches any number of path segments, {@code
+   * *} and {@code ?} don't cross segment boundaries.
+   *
+   * @param glob the glob
+   * @return the pattern which matches request paths
+   */
+  static Pattern glob(String glob) {
+    var regex = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      var c = glob.charAt(i);
+      if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+        regex.append(".*");
+        i++;
+      } else if (c == '*') {
+        regex.append("[^/]*");
+      } else if (c == '?') {
+        regex.append("[^/]");
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+
+  private static HeaderCondition header(String condition) {
+    var separator = condition.indexOf(':');
+    if (separator <= 0) {
+      throw new IllegalArgumentException("Expected Name: value, got: " + condition);
+    }
+    return new HeaderCondition(
+        new HttpString(condition.substring(0, separator).trim()),
+        condition.substring(separator + 1).trim().toLowerCase(Locale.ROOT));
+  }
+
+  /** Matches requests which have a header containing the value. */
+  private static final class HeaderCondition {
+    private final HttpString name;
+    private final String value;
+
+    private HeaderCondition(HttpString name, String value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    private boolean matches(HttpServerExchange exchange) {
+      var values = exchange.getRequestHeaders().get(name);
+      return values != null
+          && values.stream().anyMatch((v) -> v.toLowerCase(Locale.ROOT).contains(value));
+    }
+  }
+}
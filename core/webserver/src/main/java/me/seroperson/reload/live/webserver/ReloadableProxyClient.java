@@ -1,46 +1,96 @@
 package me.seroperson.reload.live.webserver;
 
 import io.undertow.client.ClientCallback;
-import io.undertow.client.ClientConnection;
-import io.undertow.client.UndertowClient;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.server.ServerConnection;
 import io.undertow.server.handlers.proxy.ProxyCallback;
 import io.undertow.server.handlers.proxy.ProxyClient;
 import io.undertow.server.handlers.proxy.ProxyConnection;
 import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.channels.Channel;
 import java.util.concurrent.TimeUnit;
 import me.seroperson.reload.live.build.BuildLogger;
-import org.xnio.ChannelListener;
-import org.xnio.IoUtils;
-import org.xnio.OptionMap;
+import me.seroperson.reload.live.webserver.BackendConnectionPool.PooledConnection;
 
 /**
  * Initially it was the SimpleProxyClientProvider from undertow library, but we had to tweak it a
- * little to support reconnection after reload.
+ * little to support reconnection after reload. Connections are taken from the shared {@link
+ * BackendConnectionPool} and returned there once the exchange is complete. gRPC calls use a
+ * separate pool of HTTP/2 connections. Requests which fail because the application is restarting
+ * are held by the {@link ReadinessGate} and sent again once it's ready. How many times a request
+ * may be retried is derived from the measured restart time as well.
  */
 public class ReloadableProxyClient implements ProxyClient {
 
-  private final URI uri;
-  private final AttachmentKey<ClientConnection> clientAttachmentKey =
-      AttachmentKey.create(ClientConnection.class);
-  private final UndertowClient client;
+  private volatile URI uri;
+  private final BackendConnectionPool pool;
+  private final BackendConnectionPool grpcPool;
+  private final ReadinessGate readinessGate;
   private final BuildLogger logger;
+  private final long requestTimeoutMillis;
+  // The proxy takes the largest of its own retry count and the target's one
+  private final ProxyTarget target =
+      new MaxRetriesProxyTarget() {
+        @Override
+        public int getMaxRetries() {
+          return readinessGate.retryBudget(requestTimeoutMillis);
+        }
+      };
+
+  private static final int NO_GENERATION = -1;
 
-  private static final ProxyTarget TARGET = new ProxyTarget() {};
+  private static final AttachmentKey<Boolean> ATTEMPTED = AttachmentKey.create(Boolean.class);
+  private static final AttachmentKey<Integer> HOLDS = AttachmentKey.create(Integer.class);
 
-  public ReloadableProxyClient(BuildLogger logger, URI uri) {
+  ReloadableProxyClient(
+      BuildLogger logger,
+      URI uri,
+      BackendConnectionPool pool,
+      BackendConnectionPool grpcPool,
+      ReadinessGate readinessGate,
+      long requestTimeoutMillis) {
     this.uri = uri;
+    this.requestTimeoutMillis = requestTimeoutMillis;
     this.logger = logger;
-    client = UndertowClient.getInstance();
+    this.pool = pool;
+    this.grpcPool = grpcPool;
+    this.readinessGate = readinessGate;
+  }
+
+  /**
+   * Checks whether the request is a gRPC call. Such calls always go over HTTP/2, so trailers are
+   * passed through.
+   *
+   * @param exchange the exchange
+   * @return true if it's a gRPC request
+   */
+  static boolean isGrpc(HttpServerExchange exchange) {
+    var contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+    return contentType != null && contentType.startsWith("application/grpc");
+  }
+
+  /**
+   * @param exchange the exchange
+   * @return true if the request has waited for a restarting application
+   */
+  static boolean isHeld(HttpServerExchange exchange) {
+    return exchange.getAttachment(HOLDS) != null;
+  }
+
+  /**
+   * Changes the target application. Connections to the previous one are re-established on the next
+   * request.
+   *
+   * @param uri the address of the new target
+   */
+  public void setTarget(URI uri) {
+    this.uri = uri;
   }
 
   @Override
   public ProxyTarget findTarget(HttpServerExchange exchange) {
-    return TARGET;
+    return target;
   }
 
   @Override
@@ -50,77 +100,100 @@ public class ReloadableProxyClient implements ProxyClient {
       ProxyCallback<ProxyConnection> callback,
       long timeout,
       TimeUnit timeUnit) {
-    ClientConnection existing = exchange.getConnection().getAttachment(clientAttachmentKey);
-    if (existing != null) {
-      if (existing.isOpen()) {
-        var wasReloaded = exchange.getAttachment(ReloadHandler.WAS_RELOADED);
-        if (wasReloaded != null && wasReloaded) {
-          logger.debug("Closing existing proxy connection");
-          IoUtils.safeClose(existing);
-          client.connect(
-              new ConnectNotifier(callback, exchange),
-              uri,
-              exchange.getIoThread(),
-              exchange.getConnection().getByteBufferPool(),
-              OptionMap.EMPTY);
-          exchange.removeAttachment(ReloadHandler.WAS_RELOADED);
-        } else {
-          // this connection already has a client, re-use it
-          callback.completed(
-              exchange, new ProxyConnection(existing, uri.getPath() == null ? "/" : uri.getPath()));
-        }
-        return;
-      } else {
-        exchange.getConnection().removeAttachment(clientAttachmentKey);
-      }
+    var instance = exchange.getAttachment(ReloadHandler.INSTANCE);
+    // The proxy asks for a connection again if a replayable request has failed
+    var isRetry = exchange.putAttachment(ATTEMPTED, true) != null;
+    if (isRetry && readinessGate.shouldHold(instance)) {
+      hold(target, exchange, callback, timeout, timeUnit);
+      return;
     }
-    client.connect(
-        new ConnectNotifier(callback, exchange),
-        uri,
-        exchange.getIoThread(),
-        exchange.getConnection().getByteBufferPool(),
-        OptionMap.EMPTY);
-  }
 
-  private final class ConnectNotifier implements ClientCallback<ClientConnection> {
-    private final ProxyCallback<ProxyConnection> callback;
-    private final HttpServerExchange exchange;
-
-    private ConnectNotifier(ProxyCallback<ProxyConnection> callback, HttpServerExchange exchange) {
-      this.callback = callback;
-      this.exchange = exchange;
+    var timing = exchange.getAttachment(RequestTiming.KEY);
+    if (timing != null) {
+      timing.connectStarted();
     }
+    var uri = instance == null ? this.uri : instance.getUri();
+    var generation = instance == null ? NO_GENERATION : instance.getGeneration().getIteration();
+    var pool = isGrpc(exchange) ? grpcPool : this.pool;
+    pool.acquire(
+        exchange.getIoThread(),
+        uri,
+        generation,
+        new ClientCallback<>() {
+          @Override
+          public void completed(PooledConnection connection) {
+            if (timing != null) {
+              timing.connectFinished(true);
+            }
+            exchange.addExchangeCompleteListener(
+                (completed, nextListener) -> {
+                  pool.release(connection, completed);
+                  nextListener.proceed();
+                });
+            var body = exchange.getAttachment(ReplayableRequestHandler.BODY);
+            var clientConnection =
+                body == null
+                    ? connection.getConnection()
+                    : new BufferedBodyConnection(connection.getConnection(), body);
+            callback.completed(
+                exchange,
+                new ProxyConnection(clientConnection, uri.getPath() == null ? "/" : uri.getPath()));
+          }
 
-    @Override
-    public void completed(final ClientConnection connection) {
-      final ServerConnection serverConnection = exchange.getConnection();
-      serverConnection.putAttachment(clientAttachmentKey, connection);
-      serverConnection.addCloseListener(
-          new ServerConnection.CloseListener() {
-            @Override
-            public void closed(ServerConnection serverConnection) {
-              IoUtils.safeClose(connection);
+          @Override
+          public void failed(IOException e) {
+            if (timing != null) {
+              timing.connectFinished(false);
             }
-          });
-      connection
-          .getCloseSetter()
-          .set(
-              new ChannelListener<Channel>() {
-                @Override
-                public void handleEvent(Channel channel) {
-                  serverConnection.removeAttachment(clientAttachmentKey);
-                  logger.debug("Closing proxy connection");
-                }
-              });
-      callback.completed(
-          exchange, new ProxyConnection(connection, uri.getPath() == null ? "/" : uri.getPath()));
-      logger.debug("Proxy got response with code " + exchange.getStatusCode());
-    }
+            // Nothing was sent yet, so any request can wait for the application to become ready
+            if (readinessGate.shouldHold(instance)) {
+              logger.debug("Application is restarting, holding " + exchange.getRequestURI());
+              hold(target, exchange, callback, timeout, timeUnit);
+              return;
+            }
+            callback.failed(exchange);
+            logger.error("Error during connection", e);
+          }
+        });
+  }
 
-    @Override
-    public void failed(IOException e) {
+  private void hold(
+      ProxyTarget target,
+      HttpServerExchange exchange,
+      ProxyCallback<ProxyConnection> callback,
+      long timeout,
+      TimeUnit timeUnit) {
+    var holds = exchange.getAttachment(HOLDS);
+    // Holding a request more than that means the application keeps failing
+    if (holds != null && holds >= readinessGate.retryBudget(requestTimeoutMillis)) {
       callback.failed(exchange);
-      logger.error("Error during connection", e);
+      return;
+    }
+    exchange.putAttachment(HOLDS, holds == null ? 1 : holds + 1);
+    var timing = exchange.getAttachment(RequestTiming.KEY);
+    if (timing != null) {
+      timing.holdStarted();
     }
+    readinessGate
+        .awaitReady(timeout < 0 ? -1L : timeUnit.toMillis(timeout))
+        .whenComplete(
+            (ready, e) ->
+                exchange
+                    .getIoThread()
+                    .execute(
+                        () -> {
+                          if (timing != null) {
+                            timing.holdFinished();
+                          }
+                          if (e != null) {
+                            logger.debug("Application didn't become ready: " + e);
+                            callback.failed(exchange);
+                            return;
+                          }
+                          if (exchange.getAttachment(ReloadHandler.INSTANCE) != null) {
+                            ReloadHandler.attachInstance(exchange, ready);
+                          }
+                          getConnection(target, exchange, callback, timeout, timeUnit);
+                        }));
   }
 }
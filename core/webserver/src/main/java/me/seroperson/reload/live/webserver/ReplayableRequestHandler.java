@@ -0,0 +1,82 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import java.util.Set;
+import me.seroperson.reload.live.build.BuildLogger;
+
+/**
+ * Makes idempotent requests replayable, so they can be sent again if the application was restarted
+ * in the middle of a request.
+ *
+ * <p>Requests without a body can be replayed as is. Small bodies are read in full before proxying
+ * and kept in memory, as the request channel can only be read once.
+ */
+final class ReplayableRequestHandler implements HttpHandler {
+
+  static final AttachmentKey<byte[]> BODY = AttachmentKey.create(byte[].class);
+
+  private static final Set<HttpString> IDEMPOTENT_METHODS =
+      Set.of(Methods.GET, Methods.HEAD, Methods.OPTIONS, Methods.PUT, Methods.DELETE);
+
+  private final BuildLogger logger;
+  private final long maxBodyBytes;
+  private final HttpHandler next;
+
+  ReplayableRequestHandler(BuildLogger logger, long maxBodyBytes, HttpHandler next) {
+    this.logger = logger;
+    this.maxBodyBytes = maxBodyBytes;
+    this.next = next;
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    var contentLength = exchange.getRequestContentLength();
+    if (contentLength <= 0L
+        || contentLength > maxBodyBytes
+        || !IDEMPOTENT_METHODS.contains(exchange.getRequestMethod())
+        || ReloadableProxyClient.isGrpc(exchange)) {
+      next.handleRequest(exchange);
+      return;
+    }
+    exchange
+        .getRequestReceiver()
+        .receiveFullBytes(
+            (completed, body) -> {
+              completed.putAttachment(BODY, body);
+              try {
+                next.handleRequest(completed);
+              } catch (Exception e) {
+                logger.error("Error during handling a request", e);
+                completed.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                completed.endExchange();
+              }
+            },
+            (failed, e) -> {
+              logger.debug("Unable to read request body: " + e.getMessage());
+              failed.endExchange();
+            });
+  }
+
+  /**
+   * Checks whether a request can be sent to the application again after a failure.
+   *
+   * @param exchange the exchange
+   * @return true if the request is idempotent and its body, if any, is kept in memory
+   */
+  static boolean isReplayable(HttpServerExchange exchange) {
+    if (!IDEMPOTENT_METHODS.contains(exchange.getRequestMethod())) {
+      return false;
+    }
+    if (exchange.getAttachment(BODY) != null) {
+      return true;
+    }
+    return exchange.getRequestContentLength() <= 0L
+        && !exchange.getRequestHeaders().contains(Headers.TRANSFER_ENCODING);
+  }
+}
@@ -0,0 +1,196 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import me.seroperson.reload.live.build.BuildLogger;
+
+/**
+ * Lets identical concurrent GET requests share a single request to the application.
+ *
+ * <p>The first request for a resource is proxied as usual and its response is captured. Identical
+ * requests which arrive meanwhile wait for it and receive the same response, so a burst of requests
+ * to a freshly started application results in one request per resource. If the response can't be
+ * shared, for instance it's too large, isn't a 200 or sets cookies, the waiting requests are
+ * proxied on their own. Conditional, range and authenticated requests are never coalesced.
+ */
+final class RequestCoalescingHandler implements HttpHandler {
+
+  // Responses to requests with these headers are partial, conditional or belong to a single client
+  private static final List<HttpString> PERSONAL_HEADERS =
+      List.of(
+          Headers.IF_NONE_MATCH,
+          Headers.IF_MODIFIED_SINCE,
+          Headers.IF_RANGE,
+          Headers.RANGE,
+          Headers.COOKIE,
+          Headers.AUTHORIZATION);
+
+  private final BuildLogger logger;
+  private final long maxBodyBytes;
+  private final List<HttpString> keyHeaders;
+  private final Set<String> keyHeaderNames;
+  private final List<Pattern> exclude;
+  private final HttpHandler next;
+
+  private final Map<String, InFlightRequest> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a handler.
+   *
+   * @param logger the logger
+   * @param maxBodyBytes the maximum size of a shared response body
+   * @param keyHeaders the names of request headers which responses depend on
+   * @param exclude the glob patterns of paths which are never coalesced
+   * @param next the handler which proxies requests
+   */
+  RequestCoalescingHandler(
+      BuildLogger logger,
+      long maxBodyBytes,
+      List<String> keyHeaders,
+      List<String> exclude,
+      HttpHandler next) {
+    this.logger = logger;
+    this.maxBodyBytes = maxBodyBytes;
+    this.keyHeaders = keyHeaders.stream().map(HttpString::new).toList();
+    this.keyHeaderNames =
+        keyHeaders.stream().map((v) -> v.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+    this.exclude = exclude.stream().map(ReloadTriggerPredicate::glob).toList();
+    this.next = next;
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    var instance = exchange.getAttachment(ReloadHandler.INSTANCE);
+    if (instance == null
+        || !exchange.getRequestMethod().equals(Methods.GET)
+        || PERSONAL_HEADERS.stream().anyMatch(exchange.getRequestHeaders()::contains)
+        || exclude.stream().anyMatch((v) -> v.matcher(exchange.getRequestPath()).matches())) {
+      next.handleRequest(exchange);
+      return;
+    }
+    // Requests to different generations never share a response
+    var key =
+        instance.getGeneration().getIteration()
+            + " "
+            + ResponseCache.resourceKey(exchange, keyHeaders);
+    var request = new InFlightRequest();
+    var leader = inFlight.putIfAbsent(key, request);
+    if (leader == null) {
+      lead(exchange, key, request);
+      next.handleRequest(exchange);
+      return;
+    }
+    exchange.dispatch(
+        SameThreadExecutor.INSTANCE,
+        () -> {
+          if (!leader.await(exchange)) {
+            // The response has been already sent, too late to join
+            exchange.dispatch(exchange.getIoThread(), next);
+          }
+        });
+  }
+
+  private void lead(HttpServerExchange exchange, String key, InFlightRequest request) {
+    var conduit = new ResponseCaptureConduit[1];
+    exchange.addResponseWrapper(
+        (factory, wrapped) -> {
+          var length = wrapped.getResponseContentLength();
+          // Nobody to share with, so the body isn't copied
+          if (!request.start() || length > maxBodyBytes) {
+            return factory.create();
+          }
+          conduit[0] = new ResponseCaptureConduit(factory.create(), length, maxBodyBytes);
+          return conduit[0];
+        });
+    exchange.addExchangeCompleteListener(
+        (completed, nextListener) -> {
+          inFlight.remove(key, request);
+          var body = conduit[0] == null ? null : conduit[0].getBody();
+          ResponseCache.CachedResponse response = null;
+          if (body != null && completed.isResponseComplete() && isShareable(completed)) {
+            response = ResponseCache.CachedResponse.copyOf(completed, body, Long.MAX_VALUE);
+          }
+          var waiting = request.complete();
+          if (!waiting.isEmpty()) {
+            logger.debug(waiting.size() + " requests coalesced with " + completed.getRequestPath());
+          }
+          for (var follower : waiting) {
+            respond(follower, response);
+          }
+          nextListener.proceed();
+        });
+  }
+
+  private void respond(HttpServerExchange exchange, ResponseCache.CachedResponse response) {
+    if (response == null) {
+      exchange.dispatch(exchange.getIoThread(), next);
+    } else {
+      exchange.dispatch(exchange.getIoThread(), () -> response.send(exchange));
+    }
+  }
+
+  private boolean isShareable(HttpServerExchange exchange) {
+    var headers = exchange.getResponseHeaders();
+    // Errors may be transient and cookies belong to a single client
+    if (exchange.getStatusCode() != StatusCodes.OK || headers.contains(Headers.SET_COOKIE)) {
+      return false;
+    }
+    // The response must not depend on headers which aren't a part of the key
+    var vary = headers.get(Headers.VARY);
+    return vary == null
+        || vary.stream()
+            .flatMap((v) -> Arrays.stream(v.split(",")))
+            .map((v) -> v.trim().toLowerCase(Locale.ROOT))
+            .allMatch((v) -> v.isEmpty() || keyHeaderNames.contains(v));
+  }
+
+  /** Requests waiting for the response of the first one. */
+  private static final class InFlightRequest {
+    private final List<HttpServerExchange> waiting = new ArrayList<>();
+    // No more requests may join, as the body of the response isn't captured
+    private boolean completed;
+
+    /**
+     * Called once the response starts. Requests may keep joining only if there are waiting ones, as
+     * only then the body is captured.
+     *
+     * @return true if there are waiting requests
+     */
+    private synchronized boolean start() {
+      if (waiting.isEmpty()) {
+        completed = true;
+      }
+      return !completed;
+    }
+
+    /**
+     * @return false if the response has been already sent to the waiting requests
+     */
+    private synchronized boolean await(HttpServerExchange exchange) {
+      if (completed) {
+        return false;
+      }
+      waiting.add(exchange);
+      return true;
+    }
+
+    private synchronized List<HttpServerExchange> complete() {
+      completed = true;
+      return List.copyOf(waiting);
+    }
+  }
+}
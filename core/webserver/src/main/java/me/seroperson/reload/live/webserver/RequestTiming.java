@@ -0,0 +1,107 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HttpString;
+import java.util.Locale;
+
+/**
+ * Time spent by a request in each phase of proxying, reported in the {@code Server-Timing} header,
+ * so browser devtools show where the latency comes from:
+ *
+ * <ul>
+ *   <li>{@code reload} - waiting for changes to be compiled and the application to be reloaded;
+ *   <li>{@code startup} - waiting for a restarting application to pass its startup hooks;
+ *   <li>{@code connect} - obtaining a connection to the application;
+ *   <li>{@code upstream} - waiting for the application to respond;
+ *   <li>{@code generation} - the iteration of the application which has responded.
+ * </ul>
+ *
+ * <p>It's only attached to an exchange if the header is enabled, so there is no overhead otherwise.
+ * All the timestamps are monotonic.
+ */
+final class RequestTiming {
+
+  static final AttachmentKey<RequestTiming> KEY = AttachmentKey.create(RequestTiming.class);
+
+  private static final HttpString SERVER_TIMING = new HttpString("Server-Timing");
+
+  private final long startedNanos = System.nanoTime();
+  private long reloadNanos;
+  private long startupNanos;
+  private long connectNanos;
+  private long connectStartedNanos;
+  private long holdStartedNanos;
+  private long upstreamStartedNanos;
+
+  private RequestTiming() {}
+
+  /**
+   * Starts timing the exchange. The header is added once the response starts.
+   *
+   * @param exchange the exchange
+   */
+  static void start(HttpServerExchange exchange) {
+    var timing = new RequestTiming();
+    exchange.putAttachment(KEY, timing);
+    exchange.addResponseWrapper(
+        (factory, wrapped) -> {
+          timing.responseStarted(wrapped);
+          return factory.create();
+        });
+  }
+
+  /** Marks the end of the reload check, including waiting for a reload. */
+  void reloadFinished() {
+    reloadNanos = System.nanoTime() - startedNanos;
+  }
+
+  /** Marks the start of obtaining a connection. It may happen several times if retried. */
+  void connectStarted() {
+    connectStartedNanos = System.nanoTime();
+  }
+
+  /**
+   * Marks the end of obtaining a connection.
+   *
+   * @param connected true if the connection is obtained and the request is going to be sent
+   */
+  void connectFinished(boolean connected) {
+    var now = System.nanoTime();
+    connectNanos += now - connectStartedNanos;
+    if (connected) {
+      upstreamStartedNanos = now;
+    }
+  }
+
+  /** Marks the start of waiting for a restarting application. */
+  void holdStarted() {
+    holdStartedNanos = System.nanoTime();
+  }
+
+  /** Marks the end of waiting for a restarting application. */
+  void holdFinished() {
+    startupNanos += System.nanoTime() - holdStartedNanos;
+  }
+
+  private void responseStarted(HttpServerExchange exchange) {
+    var upstreamNanos = upstreamStartedNanos == 0L ? 0L : System.nanoTime() - upstreamStartedNanos;
+    var value =
+        String.format(
+            Locale.ROOT,
+            "reload;dur=%.1f, startup;dur=%.1f, connect;dur=%.1f, upstream;dur=%.1f",
+            millis(reloadNanos),
+            millis(startupNanos),
+            millis(connectNanos),
+            millis(upstreamNanos));
+    var instance = exchange.getAttachment(ReloadHandler.INSTANCE);
+    if (instance != null) {
+      value += ", generation;desc=\"" + instance.getGeneration().getIteration() + "\"";
+    }
+    exchange.getResponseHeaders().add(SERVER_TIMING, value);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
@@ -0,0 +1,325 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.StatusCodes;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Responses to GET requests kept in memory until the application is reloaded.
+ *
+ * <p>Entries are keyed by the generation which produced them, the request URL and the configured
+ * request headers. The total size of bodies is bounded, least recently used entries are evicted
+ * first. Lookups don't take any lock, so the recency of an entry is only approximate. Bodies are
+ * stored in direct buffers, so they're written to the client without copying.
+ *
+ * <p>Only responses which tell how long they stay fresh, or which can be validated, are stored.
+ * Responses with a validator but without {@code max-age} are never fresh, so they're only served as
+ * stale ones while the application is restarting.
+ */
+final class ResponseCache {
+
+  // Headers which describe the connection rather than the response
+  private static final Set<HttpString> HOP_BY_HOP_HEADERS =
+      Set.of(
+          Headers.CONNECTION,
+          Headers.KEEP_ALIVE,
+          Headers.TRANSFER_ENCODING,
+          Headers.CONTENT_LENGTH,
+          Headers.UPGRADE);
+
+  private final long maxBytes;
+  private final List<HttpString> keyHeaders;
+  private final Set<String> keyHeaderNames;
+
+  private final ConcurrentHashMap<String, CachedResponse> entries = new ConcurrentHashMap<>();
+  // Guarded by this, entries are added and evicted only under the lock
+  private long bytes;
+  private volatile int generation = Integer.MIN_VALUE;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxBytes the maximum total size of response bodies
+   * @param keyHeaders the names of request headers which are a part of the key
+   */
+  ResponseCache(long maxBytes, List<String> keyHeaders) {
+    this.maxBytes = maxBytes;
+    this.keyHeaders = keyHeaders.stream().map(HttpString::new).toList();
+    this.keyHeaderNames =
+        keyHeaders.stream().map((v) -> v.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+  }
+
+  /**
+   * @return the iteration of the generation whose responses are cached
+   */
+  int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * @return the maximum size of a single response body, so one response can't evict most of the
+   *     cache
+   */
+  long getMaxEntryBytes() {
+    return Math.max(maxBytes / 4L, 0L);
+  }
+
+  /**
+   * Drops all the cached responses and starts caching responses of the given generation.
+   *
+   * @param iteration the iteration of the generation which serves requests from now on
+   */
+  synchronized void activate(int iteration) {
+    generation = iteration;
+    entries.clear();
+    bytes = 0L;
+  }
+
+  /**
+   * Builds the part of the key which doesn't depend on the generation.
+   *
+   * @param exchange the exchange
+   * @return the key of the requested resource
+   */
+  String resourceKey(HttpServerExchange exchange) {
+    return resourceKey(exchange, keyHeaders);
+  }
+
+  /**
+   * Builds a key which identifies requests for the same resource, so they get the same response.
+   *
+   * @param exchange the exchange
+   * @param keyHeaders the request headers which the response depends on
+   * @return the key of the requested resource
+   */
+  static String resourceKey(HttpServerExchange exchange, List<HttpString> keyHeaders) {
+    var key = new StringBuilder();
+    key.append(exchange.getRequestMethod())
+        .append(' ')
+        .append(exchange.getHostAndPort())
+        .append(exchange.getRequestURI());
+    if (!exchange.getQueryString().isEmpty()) {
+      key.append('?').append(exchange.getQueryString());
+    }
+    var headers = exchange.getRequestHeaders();
+    for (var name : keyHeaders) {
+      var values = headers.get(name);
+      if (values != null) {
+        key.append('\n').append(name).append(':');
+        values.forEach((v) -> key.append(v).append(','));
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Finds a cached response of the current generation.
+   *
+   * @param resourceKey the key built by {@link #resourceKey(HttpServerExchange)}
+   * @return the response, or null if there is none
+   */
+  CachedResponse get(String resourceKey) {
+    var response = entries.get(key(generation, resourceKey));
+    if (response != null) {
+      response.lastUsed = System.nanoTime();
+    }
+    return response;
+  }
+
+  /**
+   * Stores the response if it's cacheable. Responses of generations other than the current one are
+   * ignored.
+   *
+   * @param iteration the iteration of the generation which has produced the response
+   * @param resourceKey the key built by {@link #resourceKey(HttpServerExchange)}
+   * @param exchange the completed exchange
+   * @param body the response body
+   */
+  synchronized void put(
+      int iteration, String resourceKey, HttpServerExchange exchange, ByteBuffer body) {
+    if (iteration != generation || body.remaining() > getMaxEntryBytes()) {
+      return;
+    }
+    var response = toCachedResponse(exchange, body);
+    if (response == null) {
+      return;
+    }
+    var previous = entries.put(key(iteration, resourceKey), response);
+    if (previous != null) {
+      bytes -= previous.body.capacity();
+    }
+    bytes += body.capacity();
+    if (bytes > maxBytes) {
+      evict();
+    }
+  }
+
+  /** Evicts the least recently used entries until the bodies fit into the limit. */
+  private void evict() {
+    var eldest = new ArrayList<>(entries.entrySet());
+    eldest.sort(Comparator.comparingLong((v) -> v.getValue().lastUsed));
+    for (var iterator = eldest.iterator(); bytes > maxBytes && iterator.hasNext(); ) {
+      var entry = iterator.next();
+      if (entries.remove(entry.getKey(), entry.getValue())) {
+        bytes -= entry.getValue().body.capacity();
+      }
+    }
+  }
+
+  /**
+   * Checks whether the request allows serving a cached response.
+   *
+   * @param exchange the exchange
+   * @return false if the client asks to go to the application
+   */
+  static boolean acceptsCached(HttpServerExchange exchange) {
+    var headers = exchange.getRequestHeaders();
+    var cacheControl = directives(headers.get(Headers.CACHE_CONTROL));
+    return !cacheControl.contains("no-cache")
+        && !cacheControl.contains("no-store")
+        && !cacheControl.contains("max-age=0")
+        && !directives(headers.get(Headers.PRAGMA)).contains("no-cache");
+  }
+
+  private CachedResponse toCachedResponse(HttpServerExchange exchange, ByteBuffer body) {
+    if (exchange.getStatusCode() != StatusCodes.OK
+        || directives(exchange.getRequestHeaders().get(Headers.CACHE_CONTROL))
+            .contains("no-store")) {
+      return null;
+    }
+    var responseHeaders = exchange.getResponseHeaders();
+    if (responseHeaders.contains(Headers.SET_COOKIE)) {
+      return null;
+    }
+    // The response must not depend on headers which aren't a part of the key
+    for (var vary : directives(responseHeaders.get(Headers.VARY))) {
+      if (!keyHeaderNames.contains(vary)) {
+        return null;
+      }
+    }
+    var maxAgeMillis = -1L;
+    for (var directive : directives(responseHeaders.get(Headers.CACHE_CONTROL))) {
+      if (directive.equals("no-store")
+          || directive.equals("no-cache")
+          || directive.equals("private")) {
+        return null;
+      } else if (directive.startsWith("max-age=") || directive.startsWith("s-maxage=")) {
+        try {
+          var seconds = Long.parseLong(directive.substring(directive.indexOf('=') + 1));
+          var millis = Math.max(seconds, 0L) * 1000L;
+          maxAgeMillis = maxAgeMillis < 0L ? millis : Math.min(maxAgeMillis, millis);
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    }
+    if (maxAgeMillis == 0L) {
+      return null;
+    } else if (maxAgeMillis < 0L) {
+      // Without explicit freshness the response may change at any moment, like a dashboard does
+      if (!responseHeaders.contains(Headers.ETAG)
+          && !responseHeaders.contains(Headers.LAST_MODIFIED)) {
+        return null;
+      }
+      maxAgeMillis = 0L;
+    }
+    return CachedResponse.copyOf(exchange, body, maxAgeMillis);
+  }
+
+  private static String key(int iteration, String resourceKey) {
+    return iteration + " " + resourceKey;
+  }
+
+  private static Set<String> directives(HeaderValues values) {
+    if (values == null) {
+      return Set.of();
+    }
+    return values.stream()
+        .flatMap((v) -> List.of(v.split(",")).stream())
+        .map((v) -> v.trim().toLowerCase(Locale.ROOT))
+        .filter((v) -> !v.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
+  /** A response kept in memory, which can be sent to any number of clients. */
+  static final class CachedResponse {
+    private final int statusCode;
+    private final HeaderMap headers;
+    private final ByteBuffer body;
+    private final long storedAt = System.currentTimeMillis();
+    private final long maxAgeMillis;
+    // When the response was looked up the last time, by System.nanoTime()
+    private volatile long lastUsed = System.nanoTime();
+
+    private CachedResponse(int statusCode, HeaderMap headers, ByteBuffer body, long maxAgeMillis) {
+      this.statusCode = statusCode;
+      this.headers = headers;
+      this.body = body;
+      this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Copies the status and the headers of a completed exchange, except the ones which describe the
+     * connection.
+     *
+     * @param exchange the exchange which has produced the response
+     * @param body the response body
+     * @param maxAgeMillis how long the response may be served, zero if it's never fresh
+     * @return the response
+     */
+    static CachedResponse copyOf(HttpServerExchange exchange, ByteBuffer body, long maxAgeMillis) {
+      var headers = new HeaderMap();
+      for (HeaderValues values : exchange.getResponseHeaders()) {
+        if (!HOP_BY_HOP_HEADERS.contains(values.getHeaderName())) {
+          headers.putAll(values.getHeaderName(), values);
+        }
+      }
+      return new CachedResponse(exchange.getStatusCode(), headers, body, maxAgeMillis);
+    }
+
+    HeaderMap getHeaders() {
+      return headers;
+    }
+
+    /**
+     * Sends the response to the client. The body is written from a view of the shared buffer, so
+     * it's not copied.
+     *
+     * @param exchange the exchange to respond to
+     */
+    void send(HttpServerExchange exchange) {
+      exchange.setStatusCode(statusCode);
+      var responseHeaders = exchange.getResponseHeaders();
+      for (var values : headers) {
+        responseHeaders.putAll(values.getHeaderName(), values);
+      }
+      responseHeaders.put(Headers.CONTENT_LENGTH, body.remaining());
+      exchange.getResponseSender().send(body.duplicate());
+    }
+
+    /**
+     * @return the number of seconds since the response was stored
+     */
+    long getAgeSeconds() {
+      return (System.currentTimeMillis() - storedAt) / 1000L;
+    }
+
+    /**
+     * @return true if the response hasn't exceeded its {@code max-age}
+     */
+    boolean isFresh() {
+      return System.currentTimeMillis() - storedAt < maxAgeMillis;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import me.seroperson.reload.live.build.BuildLogger;
+
+/**
+ * Serves GET requests from {@link ResponseCache} and stores responses of the application there.
+ *
+ * <p>Optionally, cached responses of the previous version are served while the application is
+ * restarting instead of making clients wait for it. Such responses are marked with the {@code
+ * Warning} header.
+ */
+final class ResponseCacheHandler implements HttpHandler {
+
+  private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+  private final BuildLogger logger;
+  private final DevServerStart server;
+  private final ResponseCache cache;
+  private final boolean serveStale;
+  private final Predicate triggersReload;
+  private final HttpHandler next;
+
+  ResponseCacheHandler(
+      BuildLogger logger,
+      DevServerStart server,
+      ResponseCache cache,
+      boolean serveStale,
+      Predicate triggersReload,
+      HttpHandler next) {
+    this.logger = logger;
+    this.server = server;
+    this.cache = cache;
+    this.serveStale = serveStale;
+    this.triggersReload = triggersReload;
+    this.next = next;
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    if (!exchange.getRequestMethod().equals(Methods.GET)
+        || exchange.getRequestHeaders().contains(Headers.AUTHORIZATION)) {
+      next.handleRequest(exchange);
+      return;
+    }
+    var resourceKey = cache.resourceKey(exchange);
+    var reloading = server.isReloadPending();
+    // In blue/green mode the current instance keeps serving during a reload, so its responses are
+    // still up to date
+    var stale = reloading && !server.canServeDuringReload();
+    if (ResponseCache.acceptsCached(exchange)
+        && (!stale || (serveStale && server.canServeStale()))) {
+      var cached = cache.get(resourceKey);
+      if (cached != null && (stale || cached.isFresh())) {
+        if (reloading && triggersReload.resolve(exchange)) {
+          // Nothing else may trigger the reload if all the requests are served from the cache
+          server
+              .reloadAsync()
+              .whenComplete(
+                  (wasReloaded, e) -> {
+                    if (e != null) {
+                      logger.error("Error during reloading", e);
+                    }
+                  });
+        }
+        serve(exchange, cached, stale);
+        return;
+      }
+    }
+    capture(exchange, resourceKey);
+    next.handleRequest(exchange);
+  }
+
+  private void serve(
+      HttpServerExchange exchange, ResponseCache.CachedResponse cached, boolean stale) {
+    var headers = exchange.getResponseHeaders();
+    headers.put(Headers.AGE, cached.getAgeSeconds());
+    if (stale) {
+      headers.put(Headers.WARNING, STALE_WARNING);
+    }
+    var etag = cached.getHeaders().getFirst(Headers.ETAG);
+    if (etag != null
+        && !ETagUtils.handleIfNoneMatch(exchange, ETagUtils.parseETagList(etag), true)) {
+      for (var values : cached.getHeaders()) {
+        headers.putAll(values.getHeaderName(), values);
+      }
+      exchange.setStatusCode(StatusCodes.NOT_MODIFIED);
+      headers.remove(Headers.CONTENT_TYPE);
+      exchange.endExchange();
+      return;
+    }
+    cached.send(exchange);
+  }
+
+  private void capture(HttpServerExchange exchange, String resourceKey) {
+    var maxEntryBytes = cache.getMaxEntryBytes();
+    var conduit = new ResponseCaptureConduit[1];
+    exchange.addResponseWrapper(
+        (factory, wrapped) -> {
+          var length = wrapped.getResponseContentLength();
+          if (wrapped.getStatusCode() != StatusCodes.OK || length > maxEntryBytes) {
+            return factory.create();
+          }
+          conduit[0] = new ResponseCaptureConduit(factory.create(), length, maxEntryBytes);
+          return conduit[0];
+        });
+    exchange.addExchangeCompleteListener(
+        (completed, nextListener) -> {
+          var instance = completed.getAttachment(ReloadHandler.INSTANCE);
+          var body = conduit[0] == null ? null : conduit[0].getBody();
+          if (instance != null && body != null && completed.isResponseComplete()) {
+            cache.put(instance.getGeneration().getIteration(), resourceKey, completed, body);
+          }
+          nextListener.proceed();
+        });
+  }
+}
@@ -0,0 +1,149 @@
+package me.seroperson.reload.live.webserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.Conduits;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * Copies a response body to a direct buffer while it's being written to the client.
+ *
+ * <p>The copy is abandoned as soon as the body exceeds the limit, so large responses pass through
+ * without being kept in memory.
+ */
+final class ResponseCaptureConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
+
+  private static final int INITIAL_CAPACITY = 8 * 1024;
+
+  private final long limit;
+  private ByteBuffer body;
+  private boolean finished;
+  private long writtenBytes;
+
+  /**
+   * Creates a conduit.
+   *
+   * @param next the conduit which writes to the client
+   * @param expectedLength the length of the body if it's known, -1 otherwise
+   * @param limit the maximum size of the body to capture
+   */
+  ResponseCaptureConduit(StreamSinkConduit next, long expectedLength, long limit) {
+    super(next);
+    this.limit = limit;
+    var capacity = expectedLength >= 0L ? expectedLength : Math.min(INITIAL_CAPACITY, limit);
+    this.body = ByteBuffer.allocateDirect((int) capacity);
+  }
+
+  /**
+   * @return the read-only captured body, or null if the response wasn't written in full or was too
+   *     large
+   */
+  ByteBuffer getBody() {
+    if (!finished || body == null) {
+      return null;
+    }
+    return body.duplicate().flip().asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the number of bytes written so far, including the ones which weren't captured
+   */
+  long getWrittenBytes() {
+    return writtenBytes;
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    var position = src.position();
+    var written = next.write(src);
+    capture(src, position, written);
+    return written;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+    var positions = positions(srcs, offs, len);
+    var written = next.write(srcs, offs, len);
+    capture(srcs, offs, len, positions);
+    return written;
+  }
+
+  @Override
+  public int writeFinal(ByteBuffer src) throws IOException {
+    var position = src.position();
+    var written = next.writeFinal(src);
+    capture(src, position, written);
+    if (!src.hasRemaining()) {
+      finished = true;
+    }
+    return written;
+  }
+
+  @Override
+  public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+    var positions = positions(srcs, offs, len);
+    var written = next.writeFinal(srcs, offs, len);
+    capture(srcs, offs, len, positions);
+    if (!srcs[offs + len - 1].hasRemaining()) {
+      finished = true;
+    }
+    return written;
+  }
+
+  @Override
+  public long transferFrom(FileChannel src, long position, long count) throws IOException {
+    // Going through write() so the transferred bytes are captured as well
+    return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+  }
+
+  @Override
+  public long transferFrom(StreamSourceChannel source, long count, ByteBuffer throughBuffer)
+      throws IOException {
+    return Conduits.transfer(source, count, throughBuffer, this);
+  }
+
+  @Override
+  public void terminateWrites() throws IOException {
+    finished = true;
+    next.terminateWrites();
+  }
+
+  private static int[] positions(ByteBuffer[] srcs, int offs, int len) {
+    var positions = new int[len];
+    for (int i = 0; i < len; i++) {
+      positions[i] = srcs[offs + i].position();
+    }
+    return positions;
+  }
+
+  private void capture(ByteBuffer[] srcs, int offs, int len, int[] positions) {
+    for (int i = 0; i < len; i++) {
+      var src = srcs[offs + i];
+      capture(src, positions[i], src.position() - positions[i]);
+    }
+  }
+
+  private void capture(ByteBuffer src, int position, long count) {
+    writtenBytes += Math.max(count, 0L);
+    if (body == null || count <= 0L) {
+      return;
+    }
+    var required = (long) body.position() + count;
+    if (required > limit) {
+      body = null;
+      return;
+    }
+    if (required > body.capacity()) {
+      var grown =
+          ByteBuffer.allocateDirect(
+              (int) Math.min(Math.max(required, body.capacity() * 2L), limit));
+      grown.put(body.flip());
+      body = grown;
+    }
+    body.put(src.duplicate().position(position).limit(position + (int) count));
+  }
+}
@@ -0,0 +1,336 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Mirrors a sample of GET requests to the previous generation of the application and compares its
+ * responses with the ones of the current generation.
+ *
+ * <p>Mirrored requests are sent asynchronously along with the proxied ones and their responses are
+ * discarded, so clients aren't affected. For every route, the latency of both generations and the
+ * number of responses which differ in status or body are collected until the next reload.
+ */
+final class ShadowTrafficHandler implements HttpHandler {
+
+  private static final int MAX_ROUTES = 256;
+  // Larger bodies are only compared by status
+  private static final long MAX_COMPARED_BYTES = 1024L * 1024;
+  // Either describe a single connection or can't be set by HttpClient
+  private static final Set<String> SKIPPED_HEADERS =
+      Set.of(
+          "connection",
+          "content-length",
+          "expect",
+          "host",
+          "http2-settings",
+          "keep-alive",
+          "proxy-connection",
+          "te",
+          "trailer",
+          "transfer-encoding",
+          "upgrade");
+
+  private final double sample;
+  private final Duration timeout;
+  private final HttpHandler next;
+  private final HttpClient client =
+      HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .followRedirects(HttpClient.Redirect.NEVER)
+          .build();
+
+  // Null until there are two generations to compare
+  private volatile Comparison comparison;
+
+  /**
+   * Creates a handler.
+   *
+   * @param sample the fraction of GET requests to mirror
+   * @param timeoutMillis the timeout of a mirrored request, or a non-positive value to wait forever
+   * @param next the handler which proxies requests
+   */
+  ShadowTrafficHandler(double sample, long timeoutMillis, HttpHandler next) {
+    this.sample = sample;
+    this.timeout = timeoutMillis > 0L ? Duration.ofMillis(timeoutMillis) : null;
+    this.next = next;
+  }
+
+  /**
+   * Starts mirroring requests served by the current instance to the previous one. The results of
+   * the previous comparison are dropped.
+   *
+   * @param shadow the previous instance, which is kept running
+   * @param current the instance which receives requests
+   */
+  void mirror(ApplicationInstance shadow, ApplicationInstance current) {
+    comparison =
+        new Comparison(
+            shadow.getUri(),
+            shadow.getGeneration().getIteration(),
+            current.getGeneration().getIteration());
+  }
+
+  /** Stops mirroring requests, as the previous instance is being stopped. */
+  void stopMirroring() {
+    comparison = null;
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    var comparison = this.comparison;
+    var instance = exchange.getAttachment(ReloadHandler.INSTANCE);
+    if (comparison != null
+        && instance != null
+        && instance.getGeneration().getIteration() == comparison.iteration
+        && exchange.getRequestMethod().equals(Methods.GET)
+        && !exchange.getRequestHeaders().contains(Headers.UPGRADE)
+        && ThreadLocalRandom.current().nextDouble() < sample) {
+      mirror(exchange, comparison);
+    }
+    next.handleRequest(exchange);
+  }
+
+  private void mirror(HttpServerExchange exchange, Comparison comparison) {
+    var route = comparison.route(LatencyRegressionHandler.normalize(exchange));
+    if (route == null) {
+      return;
+    }
+    var query = exchange.getQueryString();
+    var builder = HttpRequest.newBuilder();
+    try {
+      builder.uri(
+          URI.create(
+              comparison.uri + exchange.getRequestURI() + (query.isEmpty() ? "" : "?" + query)));
+      for (var header : exchange.getRequestHeaders()) {
+        var name = header.getHeaderName().toString();
+        if (!SKIPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+          header.forEach((v) -> builder.header(name, v));
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      // Such a request can't be sent by HttpClient
+      return;
+    }
+    if (timeout != null) {
+      builder.timeout(timeout);
+    }
+
+    var started = System.nanoTime();
+    var primary = new CompletableFuture<Response>();
+    var capture = new ResponseCaptureConduit[1];
+    var responded = new long[1];
+    exchange.addResponseWrapper(
+        (factory, wrapped) -> {
+          responded[0] = System.nanoTime() - started;
+          if (wrapped.getResponseContentLength() > MAX_COMPARED_BYTES) {
+            return factory.create();
+          }
+          capture[0] =
+              new ResponseCaptureConduit(
+                  factory.create(), wrapped.getResponseContentLength(), MAX_COMPARED_BYTES);
+          return capture[0];
+        });
+    exchange.addExchangeCompleteListener(
+        (completed, nextListener) -> {
+          var body = capture[0] == null ? null : capture[0].getBody();
+          primary.complete(
+              new Response(
+                  completed.getStatusCode(), responded[0], body == null ? null : checksum(body)));
+          nextListener.proceed();
+        });
+
+    var shadowStarted = System.nanoTime();
+    var shadowResponded = new long[1];
+    client
+        .sendAsync(
+            builder.build(),
+            (info) -> {
+              shadowResponded[0] = System.nanoTime() - shadowStarted;
+              var length = info.headers().firstValueAsLong("content-length").orElse(-1L);
+              return length > MAX_COMPARED_BYTES
+                  ? HttpResponse.BodySubscribers.replacing((byte[]) null)
+                  : HttpResponse.BodySubscribers.ofByteArray();
+            })
+        .thenApply(
+            (v) ->
+                new Response(
+                    v.statusCode(),
+                    shadowResponded[0],
+                    v.body() == null || v.body().length > MAX_COMPARED_BYTES
+                        ? null
+                        : checksum(ByteBuffer.wrap(v.body()))))
+        .thenCombine(primary, (shadow, current) -> route.record(current, shadow))
+        .exceptionally(
+            (e) -> {
+              route.failed.increment();
+              return null;
+            });
+  }
+
+  private static Long checksum(ByteBuffer body) {
+    var crc = new CRC32C();
+    crc.update(body);
+    return crc.getValue();
+  }
+
+  /**
+   * @return the comparison of the current and the previous generations, or null if there is nothing
+   *     to compare yet
+   */
+  String report() {
+    var comparison = this.comparison;
+    if (comparison == null) {
+      return null;
+    }
+    var rows = new ArrayList<List<String>>();
+    rows.add(List.of("Route", "Requests", "p50 before → now", "p99 before → now", "Different"));
+    var routes =
+        comparison.routes.entrySet().stream()
+            .filter((v) -> v.getValue().requests.sum() > 0L)
+            .sorted(
+                Comparator.comparingLong(
+                        (Map.Entry<String, RouteComparison> v) -> v.getValue().requests.sum())
+                    .reversed())
+            .toList();
+    var total = 0L;
+    for (var entry : routes) {
+      var route = entry.getValue();
+      var requests = route.requests.sum();
+      var failed = route.failed.sum();
+      total += requests;
+      rows.add(
+          List.of(
+              entry.getKey(),
+              requests + (failed > 0L ? " (" + failed + " failed)" : ""),
+              change(route.previous, route.current, 0.5),
+              change(route.previous, route.current, 0.99),
+              route.different.sum() + "/" + route.compared.sum()));
+    }
+    var report = new StringBuilder();
+    report
+        .append("Reload #")
+        .append(comparison.iteration)
+        .append(" against #")
+        .append(comparison.shadowIteration)
+        .append(", ")
+        .append(total)
+        .append(" mirrored requests");
+    var widths = new int[rows.get(0).size()];
+    for (var row : rows) {
+      for (int i = 0; i < widths.length; i++) {
+        widths[i] = Math.max(widths[i], row.get(i).length());
+      }
+    }
+    for (var row : rows) {
+      report.append('\n');
+      for (int i = 0; i < widths.length; i++) {
+        var cell = row.get(i);
+        // Route names are aligned to the left, numbers to the right
+        report.append(i == 0 ? pad(cell, widths[i], false) : "  " + pad(cell, widths[i], true));
+      }
+    }
+    return report.toString();
+  }
+
+  private static String change(LatencyHistogram before, LatencyHistogram now, double quantile) {
+    var was = before.percentile(quantile);
+    var is = now.percentile(quantile);
+    var change = was == 0L ? "" : String.format(Locale.ROOT, " (%+d%%)", (is - was) * 100L / was);
+    return LatencyRegressionHandler.format(was)
+        + " → "
+        + LatencyRegressionHandler.format(is)
+        + change;
+  }
+
+  private static String pad(String value, int width, boolean left) {
+    var padding = " ".repeat(width - value.length());
+    return left ? padding + value : value + padding;
+  }
+
+  private static final class Response {
+    private final int status;
+    // The time until the response has started
+    private final long nanos;
+    // Null if the body wasn't captured
+    private final Long checksum;
+
+    private Response(int status, long nanos, Long checksum) {
+      this.status = status;
+      this.nanos = nanos;
+      this.checksum = checksum;
+    }
+  }
+
+  /** The results of mirroring requests from one generation to another. */
+  private static final class Comparison {
+    private final URI uri;
+    private final int shadowIteration;
+    private final int iteration;
+    private final Map<String, RouteComparison> routes = new ConcurrentHashMap<>();
+
+    private Comparison(URI uri, int shadowIteration, int iteration) {
+      this.uri = uri;
+      this.shadowIteration = shadowIteration;
+      this.iteration = iteration;
+    }
+
+    /**
+     * @return the results for the route, or null if there are too many routes already
+     */
+    private RouteComparison route(String route) {
+      var comparison = routes.get(route);
+      if (comparison == null && routes.size() >= MAX_ROUTES) {
+        return null;
+      }
+      return comparison != null
+          ? comparison
+          : routes.computeIfAbsent(route, (v) -> new RouteComparison());
+    }
+  }
+
+  private static final class RouteComparison {
+    private final LatencyHistogram current = new LatencyHistogram();
+    private final LatencyHistogram previous = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder different = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private Void record(Response current, Response previous) {
+      requests.increment();
+      this.current.record(TimeUnit.NANOSECONDS.toMicros(current.nanos));
+      this.previous.record(TimeUnit.NANOSECONDS.toMicros(previous.nanos));
+      if (current.status != previous.status) {
+        compared.increment();
+        different.increment();
+      } else if (current.checksum != null && previous.checksum != null) {
+        compared.increment();
+        if (!current.checksum.equals(previous.checksum)) {
+          different.increment();
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package me.seroperson.reload.live.webserver;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.PathHandler;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import io.undertow.server.handlers.cache.DirectBufferCache;
+import io.undertow.server.handlers.resource.CachingResourceManager;
+import io.undertow.server.handlers.resource.PathResourceManager;
+import io.undertow.server.handlers.resource.ResourceHandler;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.ETag;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import me.seroperson.reload.live.build.BuildLogger;
+import org.xnio.IoUtils;
+
+/**
+ * Serves configured URL prefixes straight from directories on disk, so asset requests neither
+ * trigger a reload nor reach the application.
+ *
+ * <p>Large files are sent with {@code sendfile}, small ones are kept in memory until they change on
+ * disk. Responses have {@code ETag} and {@code Last-Modified}, so conditional requests are answered
+ * with {@code 304 Not Modified}.
+ */
+final class StaticResourceHandler implements HttpHandler, Closeable {
+
+  // Files up to this size are cached in memory, larger ones are always sent from disk
+  private static final long MAX_CACHED_FILE_SIZE = 64 * 1024;
+  private static final int METADATA_CACHE_SIZE = 1024;
+  private static final int CACHE_SLICE_SIZE = 1024;
+  private static final int CACHE_SLICES_PER_PAGE = 64;
+
+  private final PathHandler pathHandler;
+  private final List<ResourceManager> resourceManagers = new ArrayList<>();
+
+  /**
+   * Creates a handler.
+   *
+   * @param logger the logger
+   * @param directories the map from URL prefixes to directories
+   * @param cacheBytes the memory shared by all directories to cache small files
+   * @param next the handler for requests which don't match any prefix
+   */
+  StaticResourceHandler(
+      BuildLogger logger, Map<String, String> directories, int cacheBytes, HttpHandler next) {
+    pathHandler = new PathHandler(next);
+    var bufferCache = new DirectBufferCache(CACHE_SLICE_SIZE, CACHE_SLICES_PER_PAGE, cacheBytes);
+    for (var entry : directories.entrySet()) {
+      var directory = Path.of(entry.getValue()).toAbsolutePath().normalize();
+      if (!Files.isDirectory(directory)) {
+        logger.warn("Static directory doesn't exist: " + directory);
+      }
+      var pathResourceManager =
+          PathResourceManager.builder()
+              .setBase(directory)
+              .setAllowResourceChangeListeners(true)
+              .setETagFunction(StaticResourceHandler::etag)
+              .build();
+      // Cached entries are invalidated by the file system watcher of the underlying manager
+      var resourceManager =
+          new CachingResourceManager(
+              METADATA_CACHE_SIZE,
+              MAX_CACHED_FILE_SIZE,
+              bufferCache,
+              pathResourceManager,
+              CachingResourceManager.MAX_AGE_NO_EXPIRY);
+      resourceManagers.add(resourceManager);
+      pathHandler.addPrefixPath(
+          entry.getKey(),
+          new ResourceHandler(resourceManager, ResponseCodeHandler.HANDLE_404)
+              .setDirectoryListingEnabled(false));
+      logger.debug("Serving " + entry.getKey() + " from " + directory);
+    }
+  }
+
+  @Override
+  public void handleRequest(HttpServerExchange exchange) throws Exception {
+    pathHandler.handleRequest(exchange);
+  }
+
+  @Override
+  public void close() {
+    resourceManagers.forEach(IoUtils::safeClose);
+  }
+
+  private static ETag etag(Path path) {
+    try {
+      var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      return new ETag(
+          false,
+          Long.toHexString(attributes.size())
+              + "-"
+              + Long.toHexString(attributes.lastModifiedTime().toMillis()));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
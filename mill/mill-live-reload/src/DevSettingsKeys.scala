@@ -10,5 +10,49 @@ object DevSettingsKeys {
   val LiveReloadHttpPort: String = DevServerSettings.LiveReloadHttpPort
   val LiveReloadHealthPath: String = DevServerSettings.LiveReloadHealthPath
   val LiveReloadIsDebug: String = DevServerSettings.LiveReloadIsDebug
+  val LiveReloadProxyQueueSize: String = DevServerSettings.LiveReloadProxyQueueSize
+  val LiveReloadProxyQueueBytes: String = DevServerSettings.LiveReloadProxyQueueBytes
+  val LiveReloadBlueGreen: String = DevServerSettings.LiveReloadBlueGreen
+  val LiveReloadHttpPorts: String = DevServerSettings.LiveReloadHttpPorts
+  val LiveReloadProxyPoolMaxIdle: String = DevServerSettings.LiveReloadProxyPoolMaxIdle
+  val LiveReloadProxyPoolIdle: String = DevServerSettings.LiveReloadProxyPoolIdle
+  val LiveReloadProxyPoolPrewarm: String = DevServerSettings.LiveReloadProxyPoolPrewarm
+  val LiveReloadProxyProtocol: String = DevServerSettings.LiveReloadProxyProtocol
+  val LiveReloadProxyHttp2: String = DevServerSettings.LiveReloadProxyHttp2
+  val LiveReloadProxyHttpsPort: String = DevServerSettings.LiveReloadProxyHttpsPort
+  val LiveReloadProxyKeystore: String = DevServerSettings.LiveReloadProxyKeystore
+  val LiveReloadProxyKeystorePassword: String = DevServerSettings.LiveReloadProxyKeystorePassword
+  val LiveReloadProxyTimeout: String = DevServerSettings.LiveReloadProxyTimeout
+  val LiveReloadDrainTimeout: String = DevServerSettings.LiveReloadDrainTimeout
+  val LiveReloadProxyReplayBytes: String = DevServerSettings.LiveReloadProxyReplayBytes
+  val LiveReloadProxyCache: String = DevServerSettings.LiveReloadProxyCache
+  val LiveReloadProxyCacheBytes: String = DevServerSettings.LiveReloadProxyCacheBytes
+  val LiveReloadProxyCacheHeaders: String = DevServerSettings.LiveReloadProxyCacheHeaders
+  val LiveReloadProxyCacheStale: String = DevServerSettings.LiveReloadProxyCacheStale
+  val LiveReloadProxyStatic: String = DevServerSettings.LiveReloadProxyStatic
+  val LiveReloadProxyStaticCacheBytes: String = DevServerSettings.LiveReloadProxyStaticCacheBytes
+  val LiveReloadTriggerInclude: String = DevServerSettings.LiveReloadTriggerInclude
+  val LiveReloadTriggerExclude: String = DevServerSettings.LiveReloadTriggerExclude
+  val LiveReloadTriggerHeaders: String = DevServerSettings.LiveReloadTriggerHeaders
+  val LiveReloadProxyCoalesce: String = DevServerSettings.LiveReloadProxyCoalesce
+  val LiveReloadProxyCoalesceBytes: String = DevServerSettings.LiveReloadProxyCoalesceBytes
+  val LiveReloadProxyCoalesceExclude: String = DevServerSettings.LiveReloadProxyCoalesceExclude
+  val LiveReloadProxyCompression: String = DevServerSettings.LiveReloadProxyCompression
+  val LiveReloadProxyCompressionProviders: String = DevServerSettings.LiveReloadProxyCompressionProviders
+  val LiveReloadProxyCompressionCacheBytes: String = DevServerSettings.LiveReloadProxyCompressionCacheBytes
+  val LiveReloadProxyServerTiming: String = DevServerSettings.LiveReloadProxyServerTiming
+  val LiveReloadProxyLatency: String = DevServerSettings.LiveReloadProxyLatency
+  val LiveReloadProxyLatencySamples: String = DevServerSettings.LiveReloadProxyLatencySamples
+  val LiveReloadProxyLatencyThreshold: String = DevServerSettings.LiveReloadProxyLatencyThreshold
+  val LiveReloadShadow: String = DevServerSettings.LiveReloadShadow
+  val LiveReloadShadowSample: String = DevServerSettings.LiveReloadShadowSample
+  val LiveReloadProxyInProcess: String = DevServerSettings.LiveReloadProxyInProcess
+  val LiveReloadNormalizeBytecode: String = DevServerSettings.LiveReloadNormalizeBytecode
+  val LiveReloadLayers: String = DevServerSettings.LiveReloadLayers
+  val LiveReloadDependenciesIndex: String = DevServerSettings.LiveReloadDependenciesIndex
+  val LiveReloadDependenciesPreload: String = DevServerSettings.LiveReloadDependenciesPreload
+  val LiveReloadEager: String = DevServerSettings.LiveReloadEager
+  val LiveReloadEagerDelay: String = DevServerSettings.LiveReloadEagerDelay
+  val LiveReloadDaemon: String = DevServerSettings.LiveReloadDaemon
   // format: on
 }
@@ -5,6 +5,7 @@ object HookClassnames {
   val IoAppStartup = "me.seroperson.reload.live.hook.io.IoAppStartupHook"
   val ZioAppStartup = "me.seroperson.reload.live.hook.zio.ZioAppStartupHook"
   val RestApiHealthCheckStartup = "me.seroperson.reload.live.hook.RestApiHealthCheckStartupHook"
+  val TcpHealthCheckStartup = "me.seroperson.reload.live.hook.TcpHealthCheckStartupHook"
 
   val IoAppShutdown = "me.seroperson.reload.live.hook.io.IoAppShutdownHook"
   val ZioAppShutdown = "me.seroperson.reload.live.hook.zio.ZioAppShutdownHook"
@@ -85,14 +85,24 @@ trait LiveReloadModule extends JavaModule {
               selectedTasks,
               executionResults
             ) =>
-          val allClasses = executionResults.transitiveResults.flatMap {
+          val compiled = executionResults.transitiveResults.flatMap {
             case (key, value) =>
               value.asSuccess.map(_.value.value).collect {
                 case x: CompilationResult =>
-                  x.classes.path.toIO
+                  key -> x.classes.path.toIO
               }
           }
-          new CompileSuccess(allClasses.toList.asJava)
+          val allClasses = compiled.values
+          // every module comes after its dependencies, so its classloader can see them
+          val layers =
+            if (settings.isLayeredClassLoaders)
+              LiveReloadModule
+                .topologicalModules(this)
+                .flatMap(module => compiled.get(module.compile))
+                .map(java.util.List.of(_))
+                .asJava
+            else null
+          new CompileSuccess(allClasses.toList.asJava, layers)
       }
     }
 
@@ -129,4 +139,17 @@ trait LiveReloadModule extends JavaModule {
 
 }
 
-object LiveReloadModule
+object LiveReloadModule {
+
+  /** Modules the root depends on, including itself, every one after its dependencies. */
+  def topologicalModules(root: JavaModule): Seq[JavaModule] = {
+    val sorted = scala.collection.mutable.LinkedHashSet.empty[JavaModule]
+    def visit(module: JavaModule): Unit =
+      if (!sorted.contains(module)) {
+        module.moduleDeps.foreach(visit)
+        sorted += module
+      }
+    visit(root)
+    sorted.toSeq
+  }
+}
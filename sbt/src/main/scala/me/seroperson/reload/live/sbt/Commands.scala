@@ -10,6 +10,7 @@ import me.seroperson.reload.live.runner.StartParams
 import me.seroperson.reload.live.settings.DevServerSettings
 import sbt.*
 import sbt.Keys.*
+import sbt.internal.BuildDependencies
 import sbt.internal.inc.Analysis
 import sbt.util.LoggerContext
 import scala.jdk.CollectionConverters.*
@@ -28,6 +29,39 @@ private[sbt] object Commands {
     liveCompileEverything.value.reduceLeft(_ ++ _)
   }
 
+  val liveProjectProductsTask = Def.task {
+    SbtCompat.uncached(thisProjectRef.value -> (Runtime / exportedProducts).value)
+  }
+
+  /** Orders the products of projects so that every project comes after the
+    * projects it depends on.
+    *
+    * @param root
+    *   the project which is run
+    * @param dependencies
+    *   the dependencies between projects of the build
+    * @param products
+    *   the products of the root project and the projects it depends on
+    * @return
+    *   the products of every project, dependencies first
+    */
+  def topologicalLayers(
+      root: ProjectRef,
+      dependencies: BuildDependencies,
+      products: Map[ProjectRef, Classpath]
+  ): Seq[Classpath] = {
+    val sorted = scala.collection.mutable.LinkedHashSet.empty[ProjectRef]
+    def visit(project: ProjectRef): Unit =
+      if (!sorted.contains(project)) {
+        dependencies.classpath
+          .getOrElse(project, Nil)
+          .foreach(dependency => visit(dependency.project))
+        sorted += project
+      }
+    visit(root)
+    sorted.toSeq.flatMap(products.get).filter(_.nonEmpty)
+  }
+
   val liveDefaultRunTask = liveRunTask(isBackground = false)
 
   def liveRunTask(isBackground: Boolean): Def.Initialize[InputTask[DevServer]] =
@@ -40,6 +74,12 @@ private[sbt] object Commands {
       val sbtState = state.value
       val scope = resolvedScoped.value.scope
 
+      val settings = new DevServerSettings(
+        (Runtime / javaOptions).value.asJava,
+        args.asJava,
+        liveDevSettings.value.toMap.asJava
+      )
+
       val reloadCompile: Supplier[CompileResult] = () => {
         // This code and the below Project.runTask(...) run outside of a user-called sbt command/task.
         // It gets called much later, by code, not by user, when a request comes in which causes us to re-compile.
@@ -75,8 +115,20 @@ private[sbt] object Commands {
               .get
               .toEither
               .right
+            layers <-
+              if (settings.isLayeredClassLoaders) {
+                SbtCompat
+                  .runTask(scope / liveReloaderLayers, newState)
+                  .map(_._2)
+                  .get
+                  .toEither
+                  .map(_.map(SbtCompat.getFiles(_).asJava).asJava)
+              } else {
+                Right(null)
+              }
           } yield new CompileResult.CompileSuccess(
-            SbtCompat.getFiles(classpath).asJava
+            SbtCompat.getFiles(classpath).asJava,
+            layers
           )).left
             .map(inc => {
               inc.directCause.map(_.printStackTrace())
@@ -90,12 +142,6 @@ private[sbt] object Commands {
         }
       }
 
-      val settings = new DevServerSettings(
-        (Runtime / javaOptions).value.asJava,
-        args.asJava,
-        liveDevSettings.value.toMap.asJava
-      )
-
       val logger = new SbtBuildLogger(settings, sbtLog)
       val params = new StartParams(
         settings,
@@ -17,6 +17,7 @@ object LiveKeys {
     val IoAppStartup = "me.seroperson.reload.live.hook.io.IoAppStartupHook"
     val ZioAppStartup = "me.seroperson.reload.live.hook.zio.ZioAppStartupHook"
     val RestApiHealthCheckStartup = "me.seroperson.reload.live.hook.RestApiHealthCheckStartupHook"
+    val TcpHealthCheckStartup = "me.seroperson.reload.live.hook.TcpHealthCheckStartupHook"
 
     val IoAppShutdown = "me.seroperson.reload.live.hook.io.IoAppShutdownHook"
     val ZioAppShutdown = "me.seroperson.reload.live.hook.zio.ZioAppShutdownHook"
@@ -34,6 +35,50 @@ object LiveKeys {
     val LiveReloadHttpPort: String = DevServerSettings.LiveReloadHttpPort
     val LiveReloadHealthPath: String = DevServerSettings.LiveReloadHealthPath
     val LiveReloadIsDebug: String = DevServerSettings.LiveReloadIsDebug
+    val LiveReloadProxyQueueSize: String = DevServerSettings.LiveReloadProxyQueueSize
+    val LiveReloadProxyQueueBytes: String = DevServerSettings.LiveReloadProxyQueueBytes
+    val LiveReloadBlueGreen: String = DevServerSettings.LiveReloadBlueGreen
+    val LiveReloadHttpPorts: String = DevServerSettings.LiveReloadHttpPorts
+    val LiveReloadProxyPoolMaxIdle: String = DevServerSettings.LiveReloadProxyPoolMaxIdle
+    val LiveReloadProxyPoolIdle: String = DevServerSettings.LiveReloadProxyPoolIdle
+    val LiveReloadProxyPoolPrewarm: String = DevServerSettings.LiveReloadProxyPoolPrewarm
+    val LiveReloadProxyProtocol: String = DevServerSettings.LiveReloadProxyProtocol
+    val LiveReloadProxyHttp2: String = DevServerSettings.LiveReloadProxyHttp2
+    val LiveReloadProxyHttpsPort: String = DevServerSettings.LiveReloadProxyHttpsPort
+    val LiveReloadProxyKeystore: String = DevServerSettings.LiveReloadProxyKeystore
+    val LiveReloadProxyKeystorePassword: String = DevServerSettings.LiveReloadProxyKeystorePassword
+    val LiveReloadProxyTimeout: String = DevServerSettings.LiveReloadProxyTimeout
+    val LiveReloadDrainTimeout: String = DevServerSettings.LiveReloadDrainTimeout
+    val LiveReloadProxyReplayBytes: String = DevServerSettings.LiveReloadProxyReplayBytes
+    val LiveReloadProxyCache: String = DevServerSettings.LiveReloadProxyCache
+    val LiveReloadProxyCacheBytes: String = DevServerSettings.LiveReloadProxyCacheBytes
+    val LiveReloadProxyCacheHeaders: String = DevServerSettings.LiveReloadProxyCacheHeaders
+    val LiveReloadProxyCacheStale: String = DevServerSettings.LiveReloadProxyCacheStale
+    val LiveReloadProxyStatic: String = DevServerSettings.LiveReloadProxyStatic
+    val LiveReloadProxyStaticCacheBytes: String = DevServerSettings.LiveReloadProxyStaticCacheBytes
+    val LiveReloadTriggerInclude: String = DevServerSettings.LiveReloadTriggerInclude
+    val LiveReloadTriggerExclude: String = DevServerSettings.LiveReloadTriggerExclude
+    val LiveReloadTriggerHeaders: String = DevServerSettings.LiveReloadTriggerHeaders
+    val LiveReloadProxyCoalesce: String = DevServerSettings.LiveReloadProxyCoalesce
+    val LiveReloadProxyCoalesceBytes: String = DevServerSettings.LiveReloadProxyCoalesceBytes
+    val LiveReloadProxyCoalesceExclude: String = DevServerSettings.LiveReloadProxyCoalesceExclude
+    val LiveReloadProxyCompression: String = DevServerSettings.LiveReloadProxyCompression
+    val LiveReloadProxyCompressionProviders: String = DevServerSettings.LiveReloadProxyCompressionProviders
+    val LiveReloadProxyCompressionCacheBytes: String = DevServerSettings.LiveReloadProxyCompressionCacheBytes
+    val LiveReloadProxyServerTiming: String = DevServerSettings.LiveReloadProxyServerTiming
+    val LiveReloadProxyLatency: String = DevServerSettings.LiveReloadProxyLatency
+    val LiveReloadProxyLatencySamples: String = DevServerSettings.LiveReloadProxyLatencySamples
+    val LiveReloadProxyLatencyThreshold: String = DevServerSettings.LiveReloadProxyLatencyThreshold
+    val LiveReloadShadow: String = DevServerSettings.LiveReloadShadow
+    val LiveReloadShadowSample: String = DevServerSettings.LiveReloadShadowSample
+    val LiveReloadProxyInProcess: String = DevServerSettings.LiveReloadProxyInProcess
+    val LiveReloadNormalizeBytecode: String = DevServerSettings.LiveReloadNormalizeBytecode
+    val LiveReloadLayers: String = DevServerSettings.LiveReloadLayers
+    val LiveReloadDependenciesIndex: String = DevServerSettings.LiveReloadDependenciesIndex
+    val LiveReloadDependenciesPreload: String = DevServerSettings.LiveReloadDependenciesPreload
+    val LiveReloadEager: String = DevServerSettings.LiveReloadEager
+    val LiveReloadEagerDelay: String = DevServerSettings.LiveReloadEagerDelay
+    val LiveReloadDaemon: String = DevServerSettings.LiveReloadDaemon
     // format: on
   }
 
@@ -60,6 +105,9 @@ object LiveKeys {
   val liveReloaderClasspath = taskKey[Classpath](
     "The application classpath, containing all projects in this build that are dependencies of this project, including this project."
   )
+  val liveReloaderLayers = taskKey[Seq[Classpath]](
+    "The application classpath grouped by project, every project after the projects it depends on."
+  )
 
   val liveReload = taskKey[Analysis](
     "Executed when sources of changed, to recompile (and possibly reload) the app."
@@ -56,6 +56,17 @@ object LiveReloadPlugin extends AutoPlugin {
         )
         .value
     ),
+    // the same classes grouped by project, so unchanged projects stay loaded across reloads
+    liveReloaderLayers := SbtCompat.uncached(
+      Commands.topologicalLayers(
+        thisProjectRef.value,
+        buildDependencies.value,
+        Commands.liveProjectProductsTask
+          .all(ScopeFilter(inDependencies(ThisProject)))
+          .value
+          .toMap
+      )
+    ),
     liveReload := SbtCompat.uncached(Commands.liveReloadTask.value),
     liveCompileEverything := SbtCompat.uncached(
       Commands.liveCompileEverythingTask.value
@@ -0,0 +1,20 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class App {
+
+  public static void main(String[] args) throws IOException {
+    var port = Integer.parseInt(System.getProperty("live.reload.http.port"));
+    // Stands for something like a metrics endpoint, which tells that the daemon has started
+    try (var socket = new ServerSocket(port, 50, InetAddress.getByName("localhost"))) {
+      Files.createDirectories(Path.of("target"));
+      Files.writeString(Path.of("target", "daemon.txt"), "Hello World");
+      Thread.sleep(Long.MAX_VALUE);
+    } catch (InterruptedException e) {
+      // Stopped by the shutdown hook
+    }
+  }
+}
@@ -0,0 +1,29 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+public class App {
+
+  public static void main(String[] args) throws IOException {
+    var port = Integer.parseInt(System.getProperty("live.reload.http.port"));
+    var server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+    server.createContext("/greet", (exchange) -> respond(exchange, Text.response()));
+    server.createContext("/store", (exchange) -> respond(exchange, Store.ID));
+    server.createContext("/health", (exchange) -> respond(exchange, "OK"));
+    server.start();
+    try {
+      Thread.sleep(Long.MAX_VALUE);
+    } catch (InterruptedException e) {
+      server.stop(0);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    var bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, bytes.length);
+    exchange.getResponseBody().write(bytes);
+    exchange.close();
+  }
+}
@@ -0,0 +1,7 @@
+import java.util.UUID;
+
+/** Changes its identity whenever the class is loaded again. */
+public class Store {
+
+  public static final String ID = UUID.randomUUID().toString();
+}
@@ -0,0 +1,6 @@
+public class Text {
+
+  public static String response() {
+    return "Hello World";
+  }
+}